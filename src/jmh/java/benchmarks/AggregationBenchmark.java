@@ -0,0 +1,55 @@
+package benchmarks;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Масштабирование параллельной агрегации: одинаковый пересчет итогов по категориям
+// последовательно (threads = 0) и в пулах fork-join с разным числом потоков
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AggregationBenchmark {
+    @Param({"100000", "10000000"})
+    public int size;
+    
+    @Param({"0", "1", "2", "4", "8"})
+    public int threads;
+    
+    private Object aggregator;
+    private int operations;
+    private ForkJoinPool pool;
+    
+    @Setup(Level.Trial)
+    public void createAggregator() throws Throwable {
+        Object wallet = SyntheticWallet.create(size, 42);
+        aggregator = Finance.newAggregator(wallet);
+        operations = Finance.getOperationCount(wallet);
+        if (threads > 0) {
+            pool = new ForkJoinPool(threads);
+            // Замер имеет смысл, только если параллельный результат совпадает с последовательным
+            if (!Finance.aggregateParallel(aggregator, pool, operations)
+                    .equals(Finance.aggregateSequential(aggregator, operations))) {
+                throw new IllegalStateException("Параллельный результат отличается от последовательного");
+            }
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+    
+    @Benchmark
+    public Object aggregate() throws Throwable {
+        return pool == null
+                ? Finance.aggregateSequential(aggregator, operations)
+                : Finance.aggregateParallel(aggregator, pool, operations);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,210 @@
+package benchmarks;
+
+import java.io.File;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+// Классы приложения лежат в пакете по умолчанию, а JMH требует, чтобы бенчмарки были в именованном пакете.
+// Поэтому вызовы идут через MethodHandle в static final полях: JIT сворачивает их до прямых вызовов
+final class Finance {
+    static final Object INCOME;
+    static final Object EXPENSE;
+    
+    private static final MethodHandle NEW_WALLET;
+    private static final MethodHandle GET_CATEGORY;
+    private static final MethodHandle NEW_OPERATION;
+    private static final MethodHandle ADD_OPERATION;
+    private static final MethodHandle GET_TOTAL_INCOME;
+    private static final MethodHandle GET_TOTAL_EXPENSES;
+    private static final MethodHandle GET_EXPENSES_BY_CATEGORY;
+    private static final MethodHandle CALCULATE_BY_CATEGORIES;
+    private static final MethodHandle GET_OPERATIONS_BY_CATEGORY;
+    private static final MethodHandle GET_OPERATION_COUNT;
+    private static final MethodHandle GET_STORE;
+    private static final MethodHandle GET_CATEGORIES;
+    private static final MethodHandle CATEGORY_COUNT;
+    
+    private static final MethodHandle NEW_AGGREGATOR;
+    private static final MethodHandle AGGREGATE_SEQUENTIAL;
+    private static final MethodHandle AGGREGATE_PARALLEL;
+    
+    private static final MethodHandle NEW_USER;
+    private static final MethodHandle GET_WALLET;
+    private static final MethodHandle SET_WALLET;
+    private static final MethodHandle NEW_STORAGE;
+    private static final MethodHandle LOAD;
+    private static final MethodHandle SAVE;
+    private static final MethodHandle CLOSE;
+    private static final MethodHandle CLOSE_STORAGE;
+    
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> wallet = Class.forName("Wallet");
+            Class<?> category = Class.forName("Category");
+            Class<?> operation = Class.forName("Operation");
+            Class<?> operationType = Class.forName("OperationType");
+            Class<?> user = Class.forName("User");
+            Class<?> storage = Class.forName("UserStorage");
+            Class<?> store = Class.forName("OperationStore");
+            Class<?> registry = Class.forName("CategoryRegistry");
+            Class<?> aggregator = Class.forName("OperationAggregator");
+            Class<?> totals = Class.forName("CategoryTotals");
+            
+            INCOME = enumConstant(operationType, "INCOME");
+            EXPENSE = enumConstant(operationType, "EXPENSE");
+            
+            NEW_WALLET = generic(lookup.findConstructor(wallet, MethodType.methodType(void.class)));
+            GET_CATEGORY = generic(lookup.findVirtual(wallet, "getCategory",
+                    MethodType.methodType(category, String.class, operationType)));
+            NEW_OPERATION = generic(lookup.findConstructor(operation,
+                    MethodType.methodType(void.class, category, long.class, Date.class)));
+            ADD_OPERATION = generic(lookup.findVirtual(wallet, "addOperation",
+                    MethodType.methodType(void.class, operation)));
+            GET_TOTAL_INCOME = generic(lookup.findVirtual(wallet, "getTotalIncome", MethodType.methodType(long.class)));
+            GET_TOTAL_EXPENSES = generic(lookup.findVirtual(wallet, "getTotalExpenses", MethodType.methodType(long.class)));
+            GET_EXPENSES_BY_CATEGORY = generic(lookup.findVirtual(wallet, "getExpensesByCategory",
+                    MethodType.methodType(Map.class)));
+            CALCULATE_BY_CATEGORIES = generic(lookup.findVirtual(wallet, "calculateByCategories",
+                    MethodType.methodType(Map.class, List.class, operationType)));
+            GET_OPERATIONS_BY_CATEGORY = generic(lookup.findVirtual(wallet, "getOperationsByCategory",
+                    MethodType.methodType(List.class, String.class)));
+            GET_OPERATION_COUNT = generic(lookup.findVirtual(wallet, "getOperationCount", MethodType.methodType(int.class)));
+            GET_STORE = generic(lookup.findVirtual(wallet, "getStore", MethodType.methodType(store)));
+            GET_CATEGORIES = generic(lookup.findVirtual(wallet, "getCategories", MethodType.methodType(registry)));
+            CATEGORY_COUNT = generic(lookup.findVirtual(registry, "size", MethodType.methodType(int.class)));
+            
+            NEW_AGGREGATOR = generic(lookup.findConstructor(aggregator,
+                    MethodType.methodType(void.class, store, int[].class, int.class)));
+            AGGREGATE_SEQUENTIAL = generic(lookup.findVirtual(aggregator, "aggregateSequential",
+                    MethodType.methodType(totals, int[].class, int.class, int.class)));
+            AGGREGATE_PARALLEL = generic(lookup.findVirtual(aggregator, "aggregateParallel",
+                    MethodType.methodType(totals, ForkJoinPool.class, int[].class, int.class, int.class)));
+            
+            NEW_USER = generic(lookup.findConstructor(user, MethodType.methodType(void.class, String.class)));
+            GET_WALLET = generic(lookup.findVirtual(user, "getWallet", MethodType.methodType(wallet)));
+            SET_WALLET = generic(lookup.findVirtual(user, "setWallet", MethodType.methodType(void.class, wallet)));
+            NEW_STORAGE = generic(lookup.findConstructor(storage, MethodType.methodType(void.class, File.class)));
+            LOAD = generic(lookup.findVirtual(storage, "load", MethodType.methodType(boolean.class, user)));
+            SAVE = generic(lookup.findVirtual(storage, "save", MethodType.methodType(void.class, user)));
+            CLOSE = generic(lookup.findVirtual(storage, "close", MethodType.methodType(void.class, user)));
+            CLOSE_STORAGE = generic(lookup.findVirtual(storage, "close", MethodType.methodType(void.class)));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+    
+    private Finance() {
+    }
+    
+    // Ссылочные типы приложения заменяются на Object, примитивы остаются как есть
+    private static MethodHandle generic(MethodHandle handle) {
+        MethodType type = handle.type();
+        for (int i = 0; i < type.parameterCount(); i++) {
+            if (!type.parameterType(i).isPrimitive()) {
+                type = type.changeParameterType(i, Object.class);
+            }
+        }
+        if (!type.returnType().isPrimitive()) {
+            type = type.changeReturnType(Object.class);
+        }
+        return handle.asType(type);
+    }
+    
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumConstant(Class<?> type, String name) {
+        return Enum.valueOf((Class) type, name);
+    }
+    
+    static Object newWallet() throws Throwable {
+        return (Object) NEW_WALLET.invokeExact();
+    }
+    
+    static Object getCategory(Object wallet, String name, Object type) throws Throwable {
+        return (Object) GET_CATEGORY.invokeExact(wallet, (Object) name, type);
+    }
+    
+    static Object newOperation(Object category, long amount, Date date) throws Throwable {
+        return (Object) NEW_OPERATION.invokeExact(category, amount, (Object) date);
+    }
+    
+    static void addOperation(Object wallet, Object operation) throws Throwable {
+        ADD_OPERATION.invokeExact(wallet, operation);
+    }
+    
+    static long getTotalIncome(Object wallet) throws Throwable {
+        return (long) GET_TOTAL_INCOME.invokeExact(wallet);
+    }
+    
+    static long getTotalExpenses(Object wallet) throws Throwable {
+        return (long) GET_TOTAL_EXPENSES.invokeExact(wallet);
+    }
+    
+    static Map<?, ?> getExpensesByCategory(Object wallet) throws Throwable {
+        return (Map<?, ?>) (Object) GET_EXPENSES_BY_CATEGORY.invokeExact(wallet);
+    }
+    
+    static Map<?, ?> calculateByCategories(Object wallet, List<String> names, Object type) throws Throwable {
+        return (Map<?, ?>) (Object) CALCULATE_BY_CATEGORIES.invokeExact(wallet, (Object) names, type);
+    }
+    
+    static List<?> getOperationsByCategory(Object wallet, String name) throws Throwable {
+        return (List<?>) (Object) GET_OPERATIONS_BY_CATEGORY.invokeExact(wallet, (Object) name);
+    }
+    
+    static int getOperationCount(Object wallet) throws Throwable {
+        return (int) GET_OPERATION_COUNT.invokeExact(wallet);
+    }
+    
+    // Агрегатор итогов по всем категориям кошелька, слот равен номеру категории
+    static Object newAggregator(Object wallet) throws Throwable {
+        Object categories = (Object) GET_CATEGORIES.invokeExact(wallet);
+        int slots = (int) CATEGORY_COUNT.invokeExact(categories);
+        return (Object) NEW_AGGREGATOR.invokeExact((Object) GET_STORE.invokeExact(wallet), (Object) null, slots);
+    }
+    
+    static Object aggregateSequential(Object aggregator, int end) throws Throwable {
+        return (Object) AGGREGATE_SEQUENTIAL.invokeExact(aggregator, (Object) null, 0, end);
+    }
+    
+    static Object aggregateParallel(Object aggregator, ForkJoinPool pool, int end) throws Throwable {
+        return (Object) AGGREGATE_PARALLEL.invokeExact(aggregator, (Object) pool, (Object) null, 0, end);
+    }
+    
+    static Object newUser(String login) throws Throwable {
+        return (Object) NEW_USER.invokeExact((Object) login);
+    }
+    
+    static Object getWallet(Object user) throws Throwable {
+        return (Object) GET_WALLET.invokeExact(user);
+    }
+    
+    static void setWallet(Object user, Object wallet) throws Throwable {
+        SET_WALLET.invokeExact(user, wallet);
+    }
+    
+    static Object newStorage(File directory) throws Throwable {
+        return (Object) NEW_STORAGE.invokeExact((Object) directory);
+    }
+    
+    static boolean load(Object storage, Object user) throws Throwable {
+        return (boolean) LOAD.invokeExact(storage, user);
+    }
+    
+    static void save(Object storage, Object user) throws Throwable {
+        SAVE.invokeExact(storage, user);
+    }
+    
+    static void close(Object storage, Object user) throws Throwable {
+        CLOSE.invokeExact(storage, user);
+    }
+    
+    static void close(Object storage) throws Throwable {
+        CLOSE_STORAGE.invokeExact(storage);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+package benchmarks;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.*;
+
+// Сохранение и загрузка кошелька через UserStorage - тот же путь, что у FinanceManager при выходе и входе
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PersistenceBenchmark {
+    private static final String LOGIN = "bench";
+    
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+    
+    private Path directory;
+    private Object storage;
+    private Object user;
+    
+    @Setup(Level.Trial)
+    public void createSnapshot() throws Throwable {
+        directory = Files.createTempDirectory("finance-bench");
+        storage = Finance.newStorage(directory.toFile());
+        user = Finance.newUser(LOGIN);
+        Finance.setWallet(user, SyntheticWallet.create(size, 42));
+        Finance.save(storage, user);
+    }
+    
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws Throwable {
+        Finance.close(storage, user);
+        Finance.close(storage);
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).map(Path::toFile).forEach(File::delete);
+        }
+    }
+    
+    @Benchmark
+    public void save() throws Throwable {
+        Finance.save(storage, user);
+    }
+    
+    @Benchmark
+    public int load() throws Throwable {
+        Object loadedUser = Finance.newUser(LOGIN);
+        Object freshStorage = Finance.newStorage(directory.toFile());
+        Finance.load(freshStorage, loadedUser);
+        Finance.close(freshStorage, loadedUser);
+        // Каждая загрузка открывает журнал переводов своего хранилища: без закрытия кончаются дескрипторы файлов
+        Finance.close(freshStorage);
+        return Finance.getOperationCount(Finance.getWallet(loadedUser));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,40 @@
+package benchmarks;
+
+import java.util.Date;
+import java.util.Random;
+
+// Детерминированный кошелек для бенчмарков: операции по CATEGORY_COUNT категориям каждого типа за последний год
+final class SyntheticWallet {
+    static final int CATEGORY_COUNT = 20;
+    private static final long YEAR_MILLIS = 365L * 24 * 60 * 60 * 1000;
+    
+    private SyntheticWallet() {
+    }
+    
+    static String categoryName(int index) {
+        return "Категория " + index;
+    }
+    
+    static Object create(int size, long seed) throws Throwable {
+        Object wallet = Finance.newWallet();
+        Object[] incomes = new Object[CATEGORY_COUNT];
+        Object[] expenses = new Object[CATEGORY_COUNT];
+        for (int i = 0; i < CATEGORY_COUNT; i++) {
+            incomes[i] = Finance.getCategory(wallet, categoryName(i), Finance.INCOME);
+            expenses[i] = Finance.getCategory(wallet, categoryName(i), Finance.EXPENSE);
+        }
+        
+        Random random = new Random(seed);
+        long start = System.currentTimeMillis() - YEAR_MILLIS;
+        for (int i = 0; i < size; i++) {
+            // Примерно каждая пятая операция - доход
+            Object category = random.nextInt(5) == 0
+                    ? incomes[random.nextInt(CATEGORY_COUNT)]
+                    : expenses[random.nextInt(CATEGORY_COUNT)];
+            long amount = 100 + random.nextInt(10_000_000);
+            Date date = new Date(start + (long) (random.nextDouble() * YEAR_MILLIS));
+            Finance.addOperation(wallet, Finance.newOperation(category, amount, date));
+        }
+        return wallet;
+    }
+}
\ No newline at end of file
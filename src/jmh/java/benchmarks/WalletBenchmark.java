@@ -0,0 +1,77 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+// Горячие пути Wallet на синтетических кошельках разного размера.
+// Throughput дает пропускную способность, SampleTime - перцентили задержки
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class WalletBenchmark {
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+    
+    private Object wallet;
+    private Object expenseCategory;
+    private List<String> requestedCategories;
+    private String categoryName;
+    
+    @Setup(Level.Trial)
+    public void createWallet() throws Throwable {
+        wallet = SyntheticWallet.create(size, 42);
+        categoryName = SyntheticWallet.categoryName(7);
+        expenseCategory = Finance.getCategory(wallet, categoryName, Finance.EXPENSE);
+        requestedCategories = Arrays.asList(SyntheticWallet.categoryName(1), SyntheticWallet.categoryName(3),
+                SyntheticWallet.categoryName(5), "Нет такой категории");
+    }
+    
+    @Benchmark
+    public long totals() throws Throwable {
+        return Finance.getTotalIncome(wallet) - Finance.getTotalExpenses(wallet);
+    }
+    
+    @Benchmark
+    public Map<?, ?> expensesByCategory() throws Throwable {
+        return Finance.getExpensesByCategory(wallet);
+    }
+    
+    @Benchmark
+    public Map<?, ?> calculateByCategories() throws Throwable {
+        return Finance.calculateByCategories(wallet, requestedCategories, Finance.EXPENSE);
+    }
+    
+    @Benchmark
+    public int operationsByCategory() throws Throwable {
+        return Finance.getOperationsByCategory(wallet, categoryName).size();
+    }
+    
+    // Добавление в кошелек заданного размера; свежий кошелек на каждую итерацию, чтобы он не разрастался
+    @State(Scope.Benchmark)
+    public static class Append {
+        @Param({"1000", "100000", "10000000"})
+        public int size;
+        
+        Object wallet;
+        Object category;
+        
+        @Setup(Level.Iteration)
+        public void createWallet() throws Throwable {
+            wallet = SyntheticWallet.create(size, 42);
+            category = Finance.getCategory(wallet, SyntheticWallet.categoryName(0), Finance.EXPENSE);
+        }
+    }
+    
+    @Benchmark
+    public void addOperation(Append state) throws Throwable {
+        Finance.addOperation(state.wallet, Finance.newOperation(state.category, 12_345, new Date()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,65 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+
+// Подписчик потока событий: журнал оповещений для сопровождения - пройденные пороги бюджетов и уход баланса в минус.
+// Работает в потоке подписчика, поэтому запись в файл не задерживает операции; буфер сбрасывается, когда поток догнан.
+// Включается -Dfinance.alertLog=<файл>
+public class AlertLog implements WalletEventStream.Subscriber {
+    private final Writer out;
+    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    // Пользователи, у которых баланс уже отрицательный: оповещение пишется только при переходе через ноль
+    private final Set<String> negative = new HashSet<>();
+    
+    public AlertLog(File file) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8));
+    }
+    
+    @Override
+    public void onEvent(WalletEvent event) {
+        if (event.getType() == WalletEvent.Type.BUDGET_ALERT) {
+            write(event, event.getThresholdPercent() >= 100
+                    ? "превышен бюджет категории '" + event.getCategory().getName() + "' ("
+                    + Money.toDecimal(event.getAmount()) + " из " + Money.toDecimal(event.getLimit()) + ")"
+                    : "израсходовано более " + event.getThresholdPercent() + "% бюджета категории '"
+                    + event.getCategory().getName() + "' (" + Money.toDecimal(event.getAmount())
+                    + " из " + Money.toDecimal(event.getLimit()) + ")");
+            return;
+        }
+        if (!event.isBalanceKnown()) {
+            return;
+        }
+        if (event.getBalance() < 0) {
+            if (negative.add(event.getLogin())) {
+                write(event, "отрицательный баланс " + Money.toDecimal(event.getBalance()));
+            }
+        } else {
+            negative.remove(event.getLogin());
+        }
+    }
+    
+    @Override
+    public void onCaughtUp() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private void write(WalletEvent event, String message) {
+        try {
+            out.write(dateFormat.format(new Date(event.getTimestamp())));
+            out.write('\t');
+            out.write(event.getLogin());
+            out.write('\t');
+            out.write(message);
+            out.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,369 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+// Пакетный режим без диалогов: команды читаются из сценария или stdin, результаты пишутся через один буферизованный поток.
+// Запуск: java FinanceManager --batch [сценарий|-] [каталог] или java BatchRunner [сценарий|-] [каталог].
+// Команды, по одной на строку (# - комментарий, названия с пробелами - в кавычках):
+//   register <логин> <пароль>, login <логин> <пароль>, logout,
+//   income <категория> <сумма>, expense <категория> <сумма>, budget <категория> <лимит>,
+//   transfer <получатель> <сумма>, balance, report [ГГГГ-ММ], flush
+// Вывод - строки с полями через табуляцию, первое поле - тип записи, второе - номер строки сценария:
+//   ok <строка> <команда> [ключ=значение ...], error <строка> <сообщение>,
+//   alert <строка> <категория> <порог %> <потрачено> <лимит>,
+//   income/expense <строка> <категория> <сумма>, budget <строка> <категория> <лимит> <потрачено> <остаток>,
+//   в конце - summary ok=<число> errors=<число> seconds=<время>
+public class BatchRunner {
+    // Остановиться на первой ошибке; задается -Dfinance.batchStopOnError=true
+    private static final boolean STOP_ON_ERROR = Boolean.getBoolean("finance.batchStopOnError");
+    private static final int OUTPUT_BUFFER = 64 * 1024;
+    
+    private final FinanceService service;
+    private final Writer out;
+    // Формат нужен только как ключ кэша отчетов кошелька: в выводе суммы всегда в виде 1234.50
+    private final MoneyFormat moneyFormat = new MoneyFormat(NumberFormat.getInstance());
+    private final StringBuilder line = new StringBuilder(128);
+    // Пользователи, от имени которых выполнялись команды: их журналы фиксируются на диске в конце сценария
+    private final Set<User> touched = new LinkedHashSet<>();
+    private User currentUser;
+    private int succeeded;
+    private int failed;
+    
+    // Данные отчета, снятые под блокировкой кошелька
+    private static class ReportData {
+        final Map<Category, Long> income;
+        final Map<Category, Long> expenses;
+        final Map<Category, Budget> budgets;
+        final long balance;
+        
+        ReportData(Map<Category, Long> income, Map<Category, Long> expenses, Map<Category, Budget> budgets,
+                   long balance) {
+            this.income = income;
+            this.expenses = expenses;
+            this.budgets = budgets;
+            this.balance = balance;
+        }
+    }
+    
+    public BatchRunner(FinanceService service, Writer out) {
+        this.service = service;
+        this.out = out;
+    }
+    
+    public static void main(String[] args) throws IOException {
+        String script = args.length > 0 ? args[0] : "-";
+        File directory = new File(args.length > 1 ? args[1] : ".");
+        FinanceService service = new FinanceService(new UserStorage(directory));
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                StandardCharsets.UTF_8), OUTPUT_BUFFER);
+        boolean ok = false;
+        try (BufferedReader in = new BufferedReader(script.equals("-")
+                ? new InputStreamReader(System.in, StandardCharsets.UTF_8)
+                : new InputStreamReader(new FileInputStream(script), StandardCharsets.UTF_8))) {
+            ok = new BatchRunner(service, out).run(in);
+        } catch (FileNotFoundException e) {
+            System.err.println("❌ Не удалось открыть сценарий: " + e.getMessage());
+        } finally {
+            // Вывод сбрасывается и при сбое, чтобы уже выполненные команды остались в отчете
+            service.close();
+            out.flush();
+        }
+        if (!ok) {
+            System.exit(1);
+        }
+    }
+    
+    // Возвращает true, если все команды выполнены без ошибок
+    public boolean run(BufferedReader in) throws IOException {
+        long started = System.nanoTime();
+        String text;
+        int number = 0;
+        try {
+            while ((text = in.readLine()) != null) {
+                number++;
+                try {
+                    List<String> words = split(text);
+                    if (words.isEmpty()) {
+                        continue;
+                    }
+                    execute(number, words);
+                    succeeded++;
+                } catch (FinanceException | UncheckedIOException e) {
+                    error(number, e.getMessage());
+                } catch (IOException e) {
+                    error(number, "Ошибка ввода-вывода: " + e.getMessage());
+                } catch (RuntimeException e) {
+                    // Непредвиденный сбой одной команды не обрывает сценарий: он попадает в вывод, как любая ошибка
+                    error(number, "Внутренняя ошибка: " + e);
+                }
+                if (failed > 0 && STOP_ON_ERROR) {
+                    break;
+                }
+            }
+        } finally {
+            // Журналы фиксируются, даже если сценарий оборвался на ошибке чтения или записи вывода
+            for (User user : touched) {
+                try {
+                    service.flush(user);
+                } catch (IOException e) {
+                    error(number, "Ошибка при сохранении данных " + user.getLogin() + ": " + e.getMessage());
+                }
+            }
+        }
+        startRecord("summary").append("\tok=").append(succeeded).append("\terrors=").append(failed)
+                .append(String.format(Locale.ROOT, "\tseconds=%.3f", (System.nanoTime() - started) / 1e9));
+        writeRecord();
+        return failed == 0;
+    }
+    
+    private void execute(int number, List<String> words) throws IOException {
+        String command = words.get(0).toLowerCase(Locale.ROOT);
+        switch (command) {
+            case "register": {
+                expectArguments(words, 2, "register <логин> <пароль>");
+                InputRules.checkLogin(words.get(1));
+                InputRules.checkPassword(words.get(2));
+                if (!service.register(words.get(1), words.get(2))) {
+                    throw new FinanceException("Пользователь с таким логином уже существует!");
+                }
+                ok(number, command).append("\tlogin=").append(clean(words.get(1)));
+                writeRecord();
+                break;
+            }
+            case "login": {
+                expectArguments(words, 2, "login <логин> <пароль>");
+                User user = service.authenticate(words.get(1), words.get(2));
+                if (user == null) {
+                    throw new FinanceException("Неверный логин или пароль!");
+                }
+                service.loadWallet(user);
+                currentUser = user;
+                touched.add(user);
+                ok(number, command).append("\tlogin=").append(clean(user.getLogin()));
+                writeRecord();
+                break;
+            }
+            case "logout": {
+                expectArguments(words, 0, "logout");
+                service.flush(requireUser());
+                currentUser = null;
+                ok(number, command);
+                writeRecord();
+                break;
+            }
+            case "income":
+            case "expense": {
+                expectArguments(words, 2, command + " <категория> <сумма>");
+                User user = requireUser();
+                InputRules.checkCategory(words.get(1));
+                OperationType type = command.equals("income") ? OperationType.INCOME : OperationType.EXPENSE;
+                long amount = InputRules.parseAmount(words.get(2), type == OperationType.INCOME ? "дохода" : "расхода");
+                List<BudgetAlert> alerts = service.addOperation(user, words.get(1), type, amount);
+                MoneyFormat.appendPlain(ok(number, command).append("\tbalance="), service.read(user, Wallet::getBalance));
+                writeRecord();
+                writeAlerts(number, alerts);
+                break;
+            }
+            case "budget": {
+                expectArguments(words, 2, "budget <категория> <лимит>");
+                User user = requireUser();
+                InputRules.checkCategory(words.get(1));
+                long limit = InputRules.parseAmount(words.get(2), "бюджета");
+                List<BudgetAlert> alerts = service.setBudget(user, words.get(1), limit);
+                MoneyFormat.appendPlain(ok(number, command).append("\tcategory=").append(clean(words.get(1)))
+                        .append("\tlimit="), limit);
+                writeRecord();
+                writeAlerts(number, alerts);
+                break;
+            }
+            case "transfer": {
+                expectArguments(words, 2, "transfer <получатель> <сумма>");
+                User user = requireUser();
+                long amount = InputRules.parseAmount(words.get(2), "перевода");
+                service.transfer(user, words.get(1), amount);
+                StringBuilder record = ok(number, command).append("\trecipient=").append(clean(words.get(1)))
+                        .append("\tamount=");
+                MoneyFormat.appendPlain(record, amount);
+                MoneyFormat.appendPlain(record.append("\tbalance="), service.read(user, Wallet::getBalance));
+                writeRecord();
+                break;
+            }
+            case "balance": {
+                expectArguments(words, 0, "balance");
+                long[] totals = service.read(requireUser(),
+                        wallet -> new long[] {wallet.getTotalIncome(), wallet.getTotalExpenses()});
+                writeTotals(ok(number, command), totals[0], totals[1], totals[0] - totals[1]);
+                break;
+            }
+            case "report":
+                report(number, words);
+                break;
+            case "flush": {
+                expectArguments(words, 0, "flush");
+                service.flush(requireUser());
+                ok(number, command);
+                writeRecord();
+                break;
+            }
+            default:
+                throw new FinanceException("Неизвестная команда: " + words.get(0));
+        }
+    }
+    
+    // Итоги отчета - строкой ok, суммы по категориям и бюджеты - отдельными строками с тем же номером
+    private void report(int number, List<String> words) throws IOException {
+        if (words.size() > 2) {
+            throw new FinanceException("Ошибка: ожидается report [ГГГГ-ММ]");
+        }
+        User user = requireUser();
+        ReportData data;
+        if (words.size() == 1) {
+            // Отчет за все время берется из кэша отчетов кошелька
+            WalletReport report = service.read(user, wallet -> wallet.getReport(moneyFormat));
+            data = new ReportData(report.getIncomeByCategory(), report.getExpensesByCategory(), report.getBudgets(),
+                    report.getBalance());
+        } else {
+            YearMonth period;
+            try {
+                period = YearMonth.parse(words.get(1));
+            } catch (DateTimeParseException e) {
+                throw new FinanceException("Ошибка: введите месяц в формате ГГГГ-ММ, например 2024-03!");
+            }
+            data = service.read(user, wallet -> {
+                long monthEnd = period.plusMonths(1).atDay(1).atStartOfDay(wallet.getTimeIndex().getZone())
+                        .toInstant().toEpochMilli();
+                return new ReportData(wallet.getIncomeByCategory(period), wallet.getExpensesByCategory(period),
+                        new LinkedHashMap<>(wallet.getBudgets()), wallet.getBalanceAt(new Date(monthEnd - 1)));
+            });
+        }
+        
+        writeTotals(ok(number, "report"), sum(data.income), sum(data.expenses), data.balance);
+        writeCategories(number, "income", data.income);
+        writeCategories(number, "expense", data.expenses);
+        for (Map.Entry<Category, Budget> entry : data.budgets.entrySet()) {
+            long limit = entry.getValue().getLimit();
+            long spent = data.expenses.getOrDefault(entry.getKey(), 0L);
+            StringBuilder record = startRecord("budget").append('\t').append(number)
+                    .append('\t').append(clean(entry.getKey().getName())).append('\t');
+            MoneyFormat.appendPlain(record, limit);
+            MoneyFormat.appendPlain(record.append('\t'), spent);
+            MoneyFormat.appendPlain(record.append('\t'), limit - spent);
+            writeRecord();
+        }
+    }
+    
+    private static long sum(Map<Category, Long> sums) {
+        return sums.values().stream().mapToLong(Long::longValue).sum();
+    }
+    
+    private void writeTotals(StringBuilder record, long totalIncome, long totalExpenses, long balance)
+            throws IOException {
+        MoneyFormat.appendPlain(record.append("\tincome="), totalIncome);
+        MoneyFormat.appendPlain(record.append("\texpenses="), totalExpenses);
+        MoneyFormat.appendPlain(record.append("\tbalance="), balance);
+        writeRecord();
+    }
+    
+    private void writeCategories(int number, String kind, Map<Category, Long> totals) throws IOException {
+        for (Map.Entry<Category, Long> entry : totals.entrySet()) {
+            StringBuilder record = startRecord(kind).append('\t').append(number)
+                    .append('\t').append(clean(entry.getKey().getName())).append('\t');
+            MoneyFormat.appendPlain(record, entry.getValue());
+            writeRecord();
+        }
+    }
+    
+    private void writeAlerts(int number, List<BudgetAlert> alerts) throws IOException {
+        for (BudgetAlert alert : alerts) {
+            StringBuilder record = startRecord("alert").append('\t').append(number)
+                    .append('\t').append(clean(alert.getCategory().getName()))
+                    .append('\t').append(alert.getThresholdPercent()).append('\t');
+            MoneyFormat.appendPlain(record, alert.getSpent());
+            MoneyFormat.appendPlain(record.append('\t'), alert.getLimit());
+            writeRecord();
+        }
+    }
+    
+    private User requireUser() {
+        if (currentUser == null) {
+            throw new FinanceException("Ошибка: сначала выполните login <логин> <пароль>");
+        }
+        return currentUser;
+    }
+    
+    private static void expectArguments(List<String> words, int count, String usage) {
+        if (words.size() != count + 1) {
+            throw new FinanceException("Ошибка: ожидается " + usage);
+        }
+    }
+    
+    private StringBuilder ok(int number, String command) {
+        return startRecord("ok").append('\t').append(number).append('\t').append(command);
+    }
+    
+    private void error(int number, String message) throws IOException {
+        failed++;
+        startRecord("error").append('\t').append(number).append('\t').append(clean(message));
+        writeRecord();
+    }
+    
+    private StringBuilder startRecord(String kind) {
+        line.setLength(0);
+        return line.append(kind);
+    }
+    
+    private void writeRecord() throws IOException {
+        out.append(line).append('\n');
+    }
+    
+    // Табуляция и переводы строк в значениях заменяются пробелами, чтобы не ломать разбор вывода
+    private static String clean(String value) {
+        return value.replace('\t', ' ').replace('\n', ' ').replace('\r', ' ');
+    }
+    
+    // Слова строки через пробелы; слово в двойных кавычках может содержать пробелы, \" и \\ внутри кавычек экранируются
+    static List<String> split(String text) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        int i = 0;
+        int length = text.length();
+        while (i < length) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            if (c == '#') {
+                break;
+            }
+            word.setLength(0);
+            if (c == '"') {
+                i++;
+                boolean closed = false;
+                while (i < length) {
+                    c = text.charAt(i++);
+                    if (c == '"') {
+                        closed = true;
+                        break;
+                    }
+                    if (c == '\\' && i < length) {
+                        c = text.charAt(i++);
+                    }
+                    word.append(c);
+                }
+                if (!closed) {
+                    throw new FinanceException("Ошибка: незакрытая кавычка");
+                }
+            } else {
+                while (i < length && !Character.isWhitespace(text.charAt(i))) {
+                    word.append(text.charAt(i++));
+                }
+            }
+            words.add(word.toString());
+        }
+        return words;
+    }
+}
\ No newline at end of file
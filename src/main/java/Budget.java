@@ -1,21 +1,43 @@
-import java.io.Serializable;
+import java.io.*;
 
 public class Budget implements Serializable {
-    private Category category;
-    private double limit;
+    private static final long serialVersionUID = 5704427739848507779L;
     
-    public Budget(Category category, double limit) {
+    // В потоке сериализации лимит остается double, поэтому старые файлы .dat читаются
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("category", Category.class),
+        new ObjectStreamField("limit", double.class)
+    };
+    
+    private transient Category category;
+    // Лимит в копейках
+    private transient long limit;
+    
+    public Budget(Category category, long limit) {
         this.category = category;
         this.limit = limit;
     }
     
     public Category getCategory() { return category; }
-    public double getLimit() { return limit; }
-    public void setLimit(double limit) { this.limit = limit; }
+    public long getLimit() { return limit; }
+    public void setLimit(long limit) { this.limit = limit; }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("category", category);
+        fields.put("limit", Money.toDouble(limit));
+        out.writeFields();
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        category = (Category) fields.get("category", null);
+        limit = Money.fromDouble(fields.get("limit", 0.0));
+    }
     
     @Override
     public String toString() {
-        return String.format("Budget{category=%s, limit=%.2f}", 
-                           category.getName(), limit);
+        return String.format("Budget{category=%s, limit=%s}", 
+                           category.getName(), Money.toDecimal(limit));
     }
 }
\ No newline at end of file
@@ -0,0 +1,26 @@
+public class BudgetAlert {
+    private final Category category;
+    // Суммы в копейках
+    private final long limit;
+    private final long spent;
+    private final int thresholdPercent;
+    
+    public BudgetAlert(Category category, long limit, long spent, int thresholdPercent) {
+        this.category = category;
+        this.limit = limit;
+        this.spent = spent;
+        this.thresholdPercent = thresholdPercent;
+    }
+    
+    public Category getCategory() { return category; }
+    public long getLimit() { return limit; }
+    public long getSpent() { return spent; }
+    public int getThresholdPercent() { return thresholdPercent; }
+    public boolean isExceeded() { return thresholdPercent >= 100; }
+    
+    @Override
+    public String toString() {
+        return String.format("BudgetAlert{category=%s, threshold=%d%%, spent=%s, limit=%s}",
+                           category.getName(), thresholdPercent, Money.toDecimal(spent), Money.toDecimal(limit));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,75 @@
+import java.util.Arrays;
+
+// Лимиты бюджетов по номерам категорий: проверка бюджета после расхода - обращение к массиву
+public class BudgetTracker {
+    // Пороги оповещений в процентах от лимита
+    public static final int[] ALERT_THRESHOLDS = {80, 100};
+    
+    private static final long NO_BUDGET = -1;
+    
+    private long[] limits = new long[0];
+    // Число уже пройденных порогов для каждой категории
+    private byte[] alertLevels = new byte[0];
+    
+    private void ensureCapacity(int categoryId) {
+        if (categoryId >= limits.length) {
+            int capacity = Math.max(categoryId + 1, Math.max(16, limits.length * 2));
+            int oldLength = limits.length;
+            limits = Arrays.copyOf(limits, capacity);
+            alertLevels = Arrays.copyOf(alertLevels, capacity);
+            Arrays.fill(limits, oldLength, capacity, NO_BUDGET);
+        }
+    }
+    
+    public boolean hasBudget(int categoryId) {
+        return categoryId < limits.length && limits[categoryId] != NO_BUDGET;
+    }
+    
+    public long getLimit(int categoryId) {
+        return hasBudget(categoryId) ? limits[categoryId] : NO_BUDGET;
+    }
+    
+    public boolean isExceeded(int categoryId, long spent) {
+        return hasBudget(categoryId) && spent > limits[categoryId];
+    }
+    
+    // Устанавливает лимит и возвращает наибольший уже пройденный порог (0, если ни одного)
+    public int setLimit(int categoryId, long limit, long spent) {
+        ensureCapacity(categoryId);
+        limits[categoryId] = limit;
+        int level = levelFor(spent, limit);
+        alertLevels[categoryId] = (byte) level;
+        return level == 0 ? 0 : ALERT_THRESHOLDS[level - 1];
+    }
+    
+    // Вызывается после каждого расхода; возвращает порог, пройденный этим расходом, или 0
+    public int onSpent(int categoryId, long spent) {
+        if (!hasBudget(categoryId)) {
+            return 0;
+        }
+        int level = levelFor(spent, limits[categoryId]);
+        if (level <= alertLevels[categoryId]) {
+            return 0;
+        }
+        alertLevels[categoryId] = (byte) level;
+        return ALERT_THRESHOLDS[level - 1];
+    }
+    
+    private static int levelFor(long spent, long limit) {
+        int level = 0;
+        while (level < ALERT_THRESHOLDS.length && exceedsPercent(spent, limit, ALERT_THRESHOLDS[level])) {
+            level++;
+        }
+        return level;
+    }
+    
+    // spent * 100 > limit * percent: накопленные суммы велики, поэтому произведения сравниваются как 128-битные
+    static boolean exceedsPercent(long spent, long limit, int percent) {
+        long spentHigh = Math.multiplyHigh(spent, 100);
+        long limitHigh = Math.multiplyHigh(limit, percent);
+        if (spentHigh != limitHigh) {
+            return spentHigh > limitHigh;
+        }
+        return Long.compareUnsigned(spent * 100, limit * percent) > 0;
+    }
+}
\ No newline at end of file
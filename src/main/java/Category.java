@@ -2,8 +2,11 @@ import java.io.Serializable;
 import java.util.Objects;
 
 public class Category implements Serializable {
+    private static final long serialVersionUID = 5439195938619606958L;
+    
     private String name;
     private OperationType type;
+    private transient int hash;
     
     public Category(String name, OperationType type) {
         this.name = name;
@@ -23,7 +26,13 @@ public class Category implements Serializable {
     
     @Override
     public int hashCode() {
-        return Objects.hash(name, type);
+        // Категории кошелька существуют в одном экземпляре и часто служат ключами, хеш кэшируется
+        int h = hash;
+        if (h == 0) {
+            h = Objects.hash(name, type);
+            hash = h;
+        }
+        return h;
     }
     
     @Override
@@ -0,0 +1,46 @@
+import java.util.Arrays;
+
+// Списки позиций операций в хранилище по номеру категории. Операции только добавляются,
+// поэтому каждый список упорядочен по возрастанию позиции, то есть в порядке добавления
+public class CategoryPostings {
+    private static final int[] EMPTY = new int[0];
+    
+    private int[][] positions = new int[16][];
+    private int[] sizes = new int[16];
+    
+    public void add(int categoryId, int position) {
+        if (categoryId >= positions.length) {
+            int capacity = Math.max(categoryId + 1, positions.length * 2);
+            positions = Arrays.copyOf(positions, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+        int[] list = positions[categoryId];
+        int size = sizes[categoryId];
+        if (list == null) {
+            list = new int[4];
+            positions[categoryId] = list;
+        } else if (size == list.length) {
+            list = Arrays.copyOf(list, size + (size >> 1));
+            positions[categoryId] = list;
+        }
+        list[size] = position;
+        sizes[categoryId] = size + 1;
+    }
+    
+    public int size(int categoryId) {
+        return categoryId >= 0 && categoryId < sizes.length ? sizes[categoryId] : 0;
+    }
+    
+    // Позиция index-й операции категории
+    public int get(int categoryId, int index) {
+        if (index < 0 || index >= size(categoryId)) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size(categoryId));
+        }
+        return positions[categoryId][index];
+    }
+    
+    // Массив позиций без копирования; действительны первые size(categoryId) элементов
+    public int[] positions(int categoryId) {
+        return size(categoryId) > 0 ? positions[categoryId] : EMPTY;
+    }
+}
\ No newline at end of file
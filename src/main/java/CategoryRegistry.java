@@ -0,0 +1,63 @@
+import java.util.*;
+
+// Словарь категорий кошелька: каждая категория хранится в одном экземпляре и имеет плотный номер
+public class CategoryRegistry {
+    private final List<Category> categories = new ArrayList<>();
+    private final Map<String, Integer> incomeIds = new HashMap<>();
+    private final Map<String, Integer> expenseIds = new HashMap<>();
+    // Упорядоченный индекс имен без учета регистра: ключ - имя в нижнем регистре, значение - номера категорий
+    // (имя может быть и у дохода, и у расхода, а также отличаться только регистром)
+    private final TreeMap<String, List<Integer>> idsByKey = new TreeMap<>();
+    
+    private Map<String, Integer> idsFor(OperationType type) {
+        return type == OperationType.INCOME ? incomeIds : expenseIds;
+    }
+    
+    public int intern(String name, OperationType type) {
+        Map<String, Integer> ids = idsFor(type);
+        Integer id = ids.get(name);
+        if (id == null) {
+            id = categories.size();
+            categories.add(new Category(name, type));
+            ids.put(name, id);
+            idsByKey.computeIfAbsent(key(name), k -> new ArrayList<>(1)).add(id);
+        }
+        return id;
+    }
+    
+    public int intern(Category category) {
+        return intern(category.getName(), category.getType());
+    }
+    
+    // Возвращает -1, если такой категории в кошельке нет
+    public int find(String name, OperationType type) {
+        Integer id = idsFor(type).get(name);
+        return id == null ? -1 : id;
+    }
+    
+    // Номера категорий, имя которых начинается с prefix без учета регистра, по алфавиту;
+    // пустой префикс - все категории. Просматривается только диапазон индекса с этим префиксом
+    public List<Integer> search(String prefix) {
+        String from = key(prefix);
+        List<Integer> result = new ArrayList<>();
+        for (Map.Entry<String, List<Integer>> entry : idsByKey.tailMap(from, true).entrySet()) {
+            if (!entry.getKey().startsWith(from)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+    
+    private static String key(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    public Category get(int id) {
+        return categories.get(id);
+    }
+    
+    public int size() {
+        return categories.size();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+// Итоги запроса по одной категории; суммы в копейках
+public class CategoryStats {
+    private final Category category;
+    private final long sum;
+    private final int count;
+    private final long min;
+    private final long max;
+    
+    public CategoryStats(Category category, long sum, int count, long min, long max) {
+        this.category = category;
+        this.sum = sum;
+        this.count = count;
+        this.min = min;
+        this.max = max;
+    }
+    
+    public Category getCategory() { return category; }
+    public long getSum() { return sum; }
+    public int getCount() { return count; }
+    // При отсутствии операций минимум и максимум равны нулю
+    public long getMin() { return count > 0 ? min : 0; }
+    public long getMax() { return count > 0 ? max : 0; }
+    
+    @Override
+    public String toString() {
+        return String.format("CategoryStats{category=%s, sum=%s, count=%d, min=%s, max=%s}",
+                           category.getName(), Money.toDecimal(sum), count,
+                           Money.toDecimal(getMin()), Money.toDecimal(getMax()));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,71 @@
+import java.util.Arrays;
+
+// Частичные итоги по категориям (или слотам запроса): суммы в копейках, количество, минимум и максимум
+public class CategoryTotals {
+    private final long[] sums;
+    private final int[] counts;
+    private final long[] mins;
+    private final long[] maxs;
+    
+    public CategoryTotals(int size) {
+        sums = new long[size];
+        counts = new int[size];
+        mins = new long[size];
+        maxs = new long[size];
+    }
+    
+    public int size() { return sums.length; }
+    public long getSum(int slot) { return sums[slot]; }
+    public int getCount(int slot) { return counts[slot]; }
+    public long getMin(int slot) { return mins[slot]; }
+    public long getMax(int slot) { return maxs[slot]; }
+    
+    public void add(int slot, long amount) {
+        if (counts[slot] == 0 || amount < mins[slot]) {
+            mins[slot] = amount;
+        }
+        if (counts[slot] == 0 || amount > maxs[slot]) {
+            maxs[slot] = amount;
+        }
+        sums[slot] += amount;
+        counts[slot]++;
+    }
+    
+    void set(int slot, long sum, int count, long min, long max) {
+        sums[slot] = sum;
+        counts[slot] = count;
+        mins[slot] = min;
+        maxs[slot] = max;
+    }
+    
+    // Суммы в long складываются точно, поэтому порядок слияния частей на результат не влияет
+    public void merge(CategoryTotals other) {
+        for (int slot = 0; slot < sums.length; slot++) {
+            if (other.counts[slot] == 0) {
+                continue;
+            }
+            if (counts[slot] == 0 || other.mins[slot] < mins[slot]) {
+                mins[slot] = other.mins[slot];
+            }
+            if (counts[slot] == 0 || other.maxs[slot] > maxs[slot]) {
+                maxs[slot] = other.maxs[slot];
+            }
+            sums[slot] += other.sums[slot];
+            counts[slot] += other.counts[slot];
+        }
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CategoryTotals that = (CategoryTotals) o;
+        return Arrays.equals(sums, that.sums) && Arrays.equals(counts, that.counts)
+                && Arrays.equals(mins, that.mins) && Arrays.equals(maxs, that.maxs);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(sums) * 31 + Arrays.hashCode(counts);
+    }
+}
\ No newline at end of file
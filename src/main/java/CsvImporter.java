@@ -0,0 +1,355 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.*;
+
+// Потоковый импорт операций из CSV: файл читается построчно, строки копятся в пачки по пользователям,
+// и каждая пачка применяется одним вызовом FinanceService (один захват блокировки и один fsync журнала).
+// Колонки: [логин,]дата,тип,категория,сумма. Разделитель - запятая или точка с запятой
+public class CsvImporter {
+    public static final int BATCH_SIZE = 10_000;
+    // Сколько строк всего может ждать записи, прежде чем все пачки будут сброшены
+    private static final int MAX_PENDING = 100_000;
+    private static final int MAX_REPORTED_ERRORS = 20;
+    
+    private final FinanceService service;
+    // Пользователь для строк без логина; если задан, строки других пользователей отклоняются
+    private final User owner;
+    private final ZoneId zone = ZoneId.systemDefault();
+    
+    private final Map<User, OperationBatch> batches = new HashMap<>();
+    private final Map<String, Category> incomeCategories = new HashMap<>();
+    private final Map<String, Category> expenseCategories = new HashMap<>();
+    private final List<String> errors = new ArrayList<>();
+    private final List<BudgetAlert> alerts = new ArrayList<>();
+    private int pending;
+    private long imported;
+    private long rejected;
+    
+    // Разбор строки переиспользует буферы, чтобы на строку не создавался лишний мусор
+    private final List<String> fields = new ArrayList<>();
+    private final StringBuilder field = new StringBuilder();
+    private String lastDateText;
+    private LocalDate lastDate;
+    
+    public CsvImporter(FinanceService service, User owner) {
+        this.service = service;
+        this.owner = owner;
+    }
+    
+    public long getImported() { return imported; }
+    public long getRejected() { return rejected; }
+    public List<String> getErrors() { return errors; }
+    public List<BudgetAlert> getAlerts() { return alerts; }
+    
+    public void importFile(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            importFrom(reader);
+        }
+    }
+    
+    public void importFrom(Reader source) throws IOException {
+        BufferedReader reader = new BufferedReader(source, 1 << 16);
+        char separator = 0;
+        long lineNumber = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1);
+            }
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            if (separator == 0) {
+                separator = detectSeparator(line);
+            }
+            if (!split(line, separator)) {
+                reject(lineNumber, "незакрытые кавычки");
+                continue;
+            }
+            if (lineNumber == 1 && isHeader()) {
+                continue;
+            }
+            String error = processRow();
+            if (error != null) {
+                reject(lineNumber, error);
+            }
+        }
+        flushAll();
+    }
+    
+    // Точка с запятой выбирается, если ее больше, чем запятых (запятая может быть десятичным разделителем)
+    private static char detectSeparator(String line) {
+        int commas = 0;
+        int semicolons = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == ',') {
+                commas++;
+            } else if (c == ';') {
+                semicolons++;
+            }
+        }
+        return semicolons > 0 && semicolons >= commas ? ';' : ',';
+    }
+    
+    private boolean split(String line, char separator) {
+        fields.clear();
+        field.setLength(0);
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == separator) {
+                fields.add(field.toString().trim());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().trim());
+        return !quoted;
+    }
+    
+    // Первая строка считается заголовком, только если ни одна ее колонка не разбирается как дата или сумма:
+    // строка данных с ошибкой в сумме отклоняется и попадает в отчет, как любая другая
+    private boolean isHeader() {
+        for (String value : fields) {
+            if (value.isEmpty()) {
+                continue;
+            }
+            try {
+                parseAmount(value);
+                return false;
+            } catch (NumberFormatException | ArithmeticException e) {
+                // Не сумма - возможно, дата
+            }
+            try {
+                parseTimestamp(value);
+                return false;
+            } catch (RuntimeException e) {
+                // Ни дата, ни сумма - похоже на название колонки
+            }
+        }
+        return true;
+    }
+    
+    // Возвращает текст ошибки или null, если строка принята
+    private String processRow() throws IOException {
+        if (fields.size() != 4 && fields.size() != 5) {
+            return "ожидалось 4 или 5 колонок, получено " + fields.size();
+        }
+        int column = 0;
+        String login = fields.size() == 5 ? fields.get(column++) : null;
+        String dateText = fields.get(column++);
+        String typeText = fields.get(column++);
+        String categoryName = fields.get(column++);
+        String amountText = fields.get(column);
+        
+        User user;
+        if (login == null || login.isEmpty()) {
+            if (owner == null) {
+                return "не указан логин";
+            }
+            user = owner;
+        } else if (owner != null) {
+            if (!owner.getLogin().equals(login)) {
+                return "операция другого пользователя '" + login + "'";
+            }
+            user = owner;
+        } else {
+            user = service.getUser(login);
+            if (user == null) {
+                return "пользователь '" + login + "' не найден";
+            }
+        }
+        
+        long amount;
+        try {
+            amount = parseAmount(amountText);
+        } catch (NumberFormatException | ArithmeticException e) {
+            return "некорректная сумма '" + amountText + "'";
+        }
+        
+        OperationType type;
+        switch (typeText.toLowerCase(Locale.ROOT)) {
+            case "доход":
+            case "income":
+            case "+":
+                type = OperationType.INCOME;
+                break;
+            case "расход":
+            case "expense":
+            case "-":
+                type = OperationType.EXPENSE;
+                break;
+            case "":
+                // Без типа операция определяется знаком суммы
+                type = amount < 0 ? OperationType.EXPENSE : OperationType.INCOME;
+                break;
+            default:
+                return "неизвестный тип операции '" + typeText + "'";
+        }
+        amount = Math.abs(amount);
+        if (amount == 0) {
+            return "сумма должна быть положительной";
+        }
+        if (amount > Money.MAX_AMOUNT) {
+            return "сумма слишком большая";
+        }
+        if (categoryName.isEmpty()) {
+            return "не указана категория";
+        }
+        if (categoryName.length() > InputRules.MAX_CATEGORY_LENGTH) {
+            return "название категории длиннее " + InputRules.MAX_CATEGORY_LENGTH + " символов";
+        }
+        
+        long timestamp;
+        try {
+            timestamp = parseTimestamp(dateText);
+        } catch (RuntimeException e) {
+            return "некорректная дата '" + dateText + "'";
+        }
+        
+        OperationBatch batch = batches.get(user);
+        if (batch == null) {
+            batch = new OperationBatch();
+            batches.put(user, batch);
+        }
+        batch.add(category(categoryName, type), amount, timestamp);
+        pending++;
+        if (batch.size() >= BATCH_SIZE) {
+            flush(user, batch);
+        } else if (pending >= MAX_PENDING) {
+            flushAll();
+        }
+        return null;
+    }
+    
+    // Знак допустим: он используется, когда тип операции не указан.
+    // Выгрузки из таблиц пишут суммы как "1 234,50", поэтому пробелы убираются, а запятая считается десятичной
+    private static long parseAmount(String text) {
+        return Money.parse(text.replace(" ", "").replace("\u00A0", "").replace(',', '.'));
+    }
+    
+    // Одинаковые категории в пачках представлены одним экземпляром
+    private Category category(String name, OperationType type) {
+        Map<String, Category> cache = type == OperationType.INCOME ? incomeCategories : expenseCategories;
+        Category category = cache.get(name);
+        if (category == null) {
+            category = new Category(name, type);
+            cache.put(name, category);
+        }
+        return category;
+    }
+    
+    // Форматы: yyyy-MM-dd, yyyy-MM-dd HH:mm, yyyy-MM-dd HH:mm:ss (вместо пробела допустимо T); пустая дата - текущий момент.
+    // Строки выгрузок обычно идут подряд по одной дате, поэтому последняя разобранная дата кэшируется
+    private long parseTimestamp(String text) {
+        if (text.isEmpty()) {
+            return System.currentTimeMillis();
+        }
+        String datePart = text.length() > 10 ? text.substring(0, 10) : text;
+        if (!datePart.equals(lastDateText)) {
+            if (datePart.length() != 10 || datePart.charAt(4) != '-' || datePart.charAt(7) != '-') {
+                throw new IllegalArgumentException(text);
+            }
+            lastDate = LocalDate.of(digits(datePart, 0, 4), digits(datePart, 5, 7), digits(datePart, 8, 10));
+            lastDateText = datePart;
+        }
+        LocalTime time = LocalTime.MIDNIGHT;
+        if (text.length() > 10) {
+            char delimiter = text.charAt(10);
+            if ((delimiter != ' ' && delimiter != 'T') || (text.length() != 16 && text.length() != 19)
+                    || text.charAt(13) != ':' || (text.length() == 19 && text.charAt(16) != ':')) {
+                throw new IllegalArgumentException(text);
+            }
+            time = LocalTime.of(digits(text, 11, 13), digits(text, 14, 16),
+                    text.length() == 19 ? digits(text, 17, 19) : 0);
+        }
+        return LocalDateTime.of(lastDate, time).atZone(zone).toInstant().toEpochMilli();
+    }
+    
+    private static int digits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                throw new IllegalArgumentException(text);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+    
+    private void reject(long lineNumber, String reason) {
+        rejected++;
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add("строка " + lineNumber + ": " + reason);
+        }
+    }
+    
+    private void flush(User user, OperationBatch batch) throws IOException {
+        alerts.addAll(service.addOperations(user, batch));
+        imported += batch.size();
+        pending -= batch.size();
+        batch.clear();
+    }
+    
+    private void flushAll() throws IOException {
+        for (Map.Entry<User, OperationBatch> entry : batches.entrySet()) {
+            if (entry.getValue().size() > 0) {
+                flush(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
+    // Импорт без консоли: java CsvImporter <каталог данных> <файл.csv>.
+    // Пользователи берутся из реестра каталога данных; строки незарегистрированных логинов отклоняются
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.out.println("Использование: java CsvImporter <каталог данных> <файл.csv>");
+            return;
+        }
+        File file = new File(args[1]);
+        FinanceService service = new FinanceService(new UserStorage(new File(args[0])));
+        
+        CsvImporter importer = new CsvImporter(service, null);
+        long started = System.nanoTime();
+        importer.importFile(file);
+        for (User user : importer.batches.keySet()) {
+            service.flush(user);
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        
+        importer.printSummary(System.out);
+        System.out.printf("Время: %.2f с, %.0f строк/с%n", seconds, importer.getImported() / Math.max(seconds, 1e-9));
+    }
+    
+    public void printSummary(PrintStream out) {
+        out.println("✅ Импортировано операций: " + imported);
+        if (rejected > 0) {
+            out.println("⚠️ Отклонено строк: " + rejected);
+            for (String error : errors) {
+                out.println("   " + error);
+            }
+            if (rejected > errors.size()) {
+                out.println("   ...");
+            }
+        }
+    }
+}
\ No newline at end of file
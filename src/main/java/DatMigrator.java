@@ -0,0 +1,51 @@
+import java.io.*;
+
+// Одноразовый перенос старых снимков <логин>.dat (сериализация Java) в формат WalletFile
+public class DatMigrator {
+
+    public static void main(String[] args) {
+        File directory = new File(args.length > 0 ? args[0] : ".");
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null || files.length == 0) {
+            System.out.println("Файлы .dat для переноса не найдены.");
+            return;
+        }
+        
+        int migrated = 0;
+        for (File file : files) {
+            try {
+                if (migrate(file) != null) {
+                    migrated++;
+                    System.out.println("✅ " + file.getName() + " перенесен.");
+                }
+            } catch (IOException | ClassNotFoundException e) {
+                System.out.println("⚠️ Ошибка при переносе " + file.getName() + ": " + e.getMessage());
+            }
+        }
+        System.out.println("Перенесено файлов: " + migrated + " из " + files.length);
+    }
+    
+    // Возвращает созданный файл или null, если снимок в новом формате уже существует
+    public static File migrate(File datFile) throws IOException, ClassNotFoundException {
+        String name = datFile.getName();
+        String login = name.substring(0, name.length() - ".dat".length());
+        File walletFile = new File(datFile.getParentFile(), login + WalletFile.EXTENSION);
+        if (walletFile.exists()) {
+            return null;
+        }
+        
+        User savedUser;
+        try (ObjectInputStream ois = new ObjectInputStream(new BufferedInputStream(new FileInputStream(datFile)))) {
+            savedUser = (User) ois.readObject();
+        }
+        
+        File tmp = new File(datFile.getParentFile(), login + WalletFile.EXTENSION + ".tmp");
+        WalletFile.write(savedUser.getWallet(), tmp);
+        if (!tmp.renameTo(walletFile)) {
+            throw new IOException("Не удалось переименовать " + tmp.getName());
+        }
+        // Старый файл сохраняется как резервная копия
+        datFile.renameTo(new File(datFile.getParentFile(), name + ".bak"));
+        return walletFile;
+    }
+}
\ No newline at end of file
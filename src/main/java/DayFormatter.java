@@ -0,0 +1,57 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+// Дата (yyyy-MM-dd) или дата со временем (yyyy-MM-dd HH:mm:ss) в заданном часовом поясе. Операции обычно идут
+// подряд по одной дате: границы последнего дня и его текст кэшируются, а время внутри дня получается арифметикой
+public class DayFormatter {
+    private static final long DAY_MILLIS = 86_400_000L;
+    
+    private final ZoneId zone;
+    private long dayStart = 1;
+    private long dayEnd = 0;
+    private String dayText;
+    // В день перехода на летнее время смещение меняется внутри дня: время в нем считается по календарю
+    private boolean shiftedDay;
+    
+    public DayFormatter(ZoneId zone) {
+        this.zone = zone;
+    }
+    
+    public void appendDate(StringBuilder out, long timestamp) {
+        selectDay(timestamp);
+        out.append(dayText);
+    }
+    
+    public void appendDateTime(StringBuilder out, long timestamp) {
+        selectDay(timestamp);
+        long millisOfDay = shiftedDay
+                ? Instant.ofEpochMilli(timestamp).atZone(zone).toLocalTime().toSecondOfDay() * 1000L
+                : timestamp - dayStart;
+        int seconds = (int) (millisOfDay / 1000);
+        out.append(dayText).append(' ');
+        appendTwoDigits(out, seconds / 3600);
+        out.append(':');
+        appendTwoDigits(out, seconds / 60 % 60);
+        out.append(':');
+        appendTwoDigits(out, seconds % 60);
+    }
+    
+    private void selectDay(long timestamp) {
+        if (timestamp >= dayStart && timestamp < dayEnd) {
+            return;
+        }
+        LocalDate date = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+        ZonedDateTime start = date.atStartOfDay(zone);
+        ZonedDateTime end = date.plusDays(1).atStartOfDay(zone);
+        dayStart = start.toInstant().toEpochMilli();
+        dayEnd = end.toInstant().toEpochMilli();
+        dayText = date.toString();
+        shiftedDay = !start.getOffset().equals(end.getOffset()) || dayEnd - dayStart != DAY_MILLIS;
+    }
+    
+    private static void appendTwoDigits(StringBuilder out, int value) {
+        out.append((char) ('0' + value / 10)).append((char) ('0' + value % 10));
+    }
+}
\ No newline at end of file
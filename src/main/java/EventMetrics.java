@@ -0,0 +1,36 @@
+// Подписчик потока событий: денежные объемы по типам изменений. Считается вне пути записи, в потоке подписчика
+public class EventMetrics implements WalletEventStream.Subscriber {
+    private static final Metrics.Counter INCOME = Metrics.counter("finance_income_kopecks_total",
+            "Сумма добавленных доходов в копейках");
+    private static final Metrics.Counter EXPENSES = Metrics.counter("finance_expense_kopecks_total",
+            "Сумма добавленных расходов в копейках");
+    private static final Metrics.Counter TRANSFERS = Metrics.counter("finance_transfer_kopecks_total",
+            "Сумма выполненных переводов в копейках");
+    private static final Metrics.Counter BUDGETS = Metrics.counter("finance_budgets_set_total",
+            "Установленные бюджеты");
+    private static final Metrics.Counter NEGATIVE = Metrics.counter("finance_negative_balance_events_total",
+            "Изменения, после которых баланс кошелька отрицательный");
+    
+    @Override
+    public void onEvent(WalletEvent event) {
+        switch (event.getType()) {
+            case OPERATION_ADDED:
+                (event.getCategory().getType() == OperationType.INCOME ? INCOME : EXPENSES).add(event.getAmount());
+                break;
+            case TRANSFER_APPLIED:
+                TRANSFERS.add(event.getAmount());
+                break;
+            case TRANSFER_RECEIVED:
+                // Объем перевода уже учтен по событию отправителя
+                break;
+            case BUDGET_SET:
+                BUDGETS.increment();
+                break;
+            default:
+                return;
+        }
+        if (event.isBalanceKnown() && event.getBalance() < 0) {
+            NEGATIVE.increment();
+        }
+    }
+}
\ No newline at end of file
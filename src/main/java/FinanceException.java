@@ -0,0 +1,8 @@
+// Нарушение бизнес-правила (нет получателя, недостаточно средств и т.п.); сообщение показывается пользователю
+public class FinanceException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public FinanceException(String message) {
+        super(message);
+    }
+}
\ No newline at end of file
@@ -1,24 +1,56 @@
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.text.NumberFormat;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
 
 public class FinanceManager {
-    private Map<String, User> users;
+    private static final int HISTORY_PAGE_SIZE = 50;
+    private static final int EXPORT_PAGE_SIZE = 4096;
+    // Метрики периодически выгружаются в текстовом формате Prometheus; задается -Dfinance.metricsFile и -Dfinance.metricsInterval (секунды)
+    private static final File METRICS_FILE = new File(System.getProperty("finance.metricsFile", "metrics.prom"));
+    private static final long METRICS_INTERVAL = Long.getLong("finance.metricsInterval", 60);
+    
+    private FinanceService service;
     private User currentUser;
     private Scanner scanner;
     private NumberFormat numberFormat;
+    private MoneyFormat moneyFormat;
     
-    public FinanceManager() {
-        this.users = new HashMap<>();
+    public FinanceManager() throws IOException {
+        this.service = new FinanceService(new UserStorage(new File(".")));
         this.scanner = new Scanner(System.in);
         this.numberFormat = NumberFormat.getInstance();
         this.numberFormat.setMinimumFractionDigits(1);
         this.numberFormat.setMaximumFractionDigits(2);
         this.numberFormat.setGroupingUsed(true);
+        this.moneyFormat = new MoneyFormat(numberFormat);
+        if (Metrics.ENABLED) {
+            Metrics.startPeriodicDump(METRICS_FILE, METRICS_INTERVAL);
+        }
     }
     
-    public static void main(String[] args) {
-        FinanceManager manager = new FinanceManager();
+    public static void main(String[] args) throws IOException {
+        // Режим HTTP-сервиса: FinanceManager --server [порт] [каталог]
+        if (args.length > 0 && args[0].equals("--server")) {
+            FinanceServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        // Пакетный режим: FinanceManager --batch [сценарий|-] [каталог]
+        if (args.length > 0 && args[0].equals("--batch")) {
+            BatchRunner.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        
+        FinanceManager manager;
+        try {
+            manager = new FinanceManager();
+        } catch (IOException e) {
+            System.out.println("❌ Не удалось открыть реестр пользователей: " + e.getMessage());
+            return;
+        }
         manager.run();
     }
     
@@ -66,7 +98,10 @@ public class FinanceManager {
         System.out.println("5. 🔍 Подсчет по категориям");
         System.out.println("6. 👥 Перевод другому пользователю");
         System.out.println("7. 📋 Показать историю операций");
-        System.out.println("8. 🚪 Выход из аккаунта");
+        System.out.println("8. 📥 Импорт операций из CSV");
+        System.out.println("9. 💾 Экспорт истории и отчета (CSV/JSON)");
+        System.out.println("10. 🩺 Диагностика");
+        System.out.println("11. 🚪 Выход из аккаунта");
         System.out.print("Выберите действие: ");
         
         String choice = getInput();
@@ -93,10 +128,19 @@ public class FinanceManager {
                 showOperationHistory();
                 break;
             case "8":
+                importOperations();
+                break;
+            case "9":
+                exportOperations();
+                break;
+            case "10":
+                showDiagnostics();
+                break;
+            case "11":
                 logout();
                 break;
             default:
-                System.out.println("❌ Неверный выбор! Пожалуйста, выберите число от 1 до 8.");
+                System.out.println("❌ Неверный выбор! Пожалуйста, выберите число от 1 до 11.");
         }
     }
     
@@ -104,6 +148,11 @@ public class FinanceManager {
         return scanner.nextLine().trim();
     }
     
+    // Суммы хранятся в копейках; MoneyFormat выводит их так же, как numberFormat, но без BigDecimal
+    private String formatMoney(long amount) {
+        return moneyFormat.format(amount);
+    }
+    
     private void login() {
         System.out.print("Введите логин: ");
         String login = getInput();
@@ -121,8 +170,9 @@ public class FinanceManager {
             return;
         }
         
-        if (users.containsKey(login) && users.get(login).validatePassword(password)) {
-            currentUser = users.get(login);
+        User user = service.authenticate(login, password);
+        if (user != null) {
+            currentUser = user;
             loadUserData();
             System.out.println("✅ Успешный вход! Добро пожаловать, " + login + "!");
         }else {
@@ -134,17 +184,14 @@ public class FinanceManager {
         System.out.print("Введите логин: ");
         String login = getInput();
         
-        if (login.isEmpty()) {
-            System.out.println("❌ Ошибка: логин не может быть пустым!");
-            return;
-        }
-        
-        if (login.length() < 3) {
-            System.out.println("❌ Ошибка: логин должен содержать минимум 3 символа!");
+        try {
+            InputRules.checkLogin(login);
+        } catch (FinanceException e) {
+            System.out.println("❌ " + e.getMessage());
             return;
         }
         
-        if (users.containsKey(login)) {
+        if (service.isRegistered(login)) {
             System.out.println("❌ Пользователь с таким логином уже существует!");
             return;
         }
@@ -152,18 +199,18 @@ public class FinanceManager {
         System.out.print("Введите пароль: ");
         String password = getInput();
         
-        if (password.isEmpty()) {
-            System.out.println("❌ Ошибка: пароль не может быть пустым!");
+        try {
+            InputRules.checkPassword(password);
+        } catch (FinanceException e) {
+            System.out.println("❌ " + e.getMessage());
             return;
         }
         
-        if (password.length() < 4) {
-            System.out.println("❌ Ошибка: пароль должен содержать минимум 4 символа!");
+        // Логин мог быть занят параллельно, пока вводился пароль
+        if (!service.register(login, password)) {
+            System.out.println("❌ Пользователь с таким логином уже существует!");
             return;
         }
-        
-        User newUser = new User(login, password);
-        users.put(login, newUser);
         System.out.println("✅ Регистрация успешна! Теперь вы можете войти в систему.");
     }
     
@@ -180,12 +227,10 @@ public class FinanceManager {
             System.out.print("Введите сумму дохода: ");
             String amountInput = getInput();
             
-            double amount = validateAmount(amountInput, "дохода");
+            long amount = validateAmount(amountInput, "дохода");
             if (amount < 0) return;
             
-            Category category = new Category(categoryName, OperationType.INCOME);
-            Operation operation = new Operation(category, amount);
-            currentUser.getWallet().addOperation(operation);
+            service.addOperation(currentUser, categoryName, OperationType.INCOME, amount);
             
             System.out.println("✅ Доход успешно добавлен!");
             checkFinancialStatus();
@@ -207,10 +252,10 @@ public class FinanceManager {
             System.out.print("Введите сумму расхода: ");
             String amountInput = getInput();
             
-            double amount = validateAmount(amountInput, "расхода");
+            long amount = validateAmount(amountInput, "расхода");
             if (amount < 0) return;
             
-            if (amount > currentUser.getWallet().getBalance()) {
+            if (amount > service.read(currentUser, Wallet::getBalance)) {
                 System.out.println("⚠️ Предупреждение: сумма расхода превышает текущий баланс!");
                 System.out.print("Продолжить? (да/нет): ");
                 String confirmation = getInput().toLowerCase();
@@ -220,12 +265,10 @@ public class FinanceManager {
                 }
             }
             
-            Category category = new Category(categoryName, OperationType.EXPENSE);
-            Operation operation = new Operation(category, amount);
-            currentUser.getWallet().addOperation(operation);
+            List<BudgetAlert> alerts = service.addOperation(currentUser, categoryName, OperationType.EXPENSE, amount);
             
             System.out.println("✅ Расход успешно добавлен!");
-            checkBudgetExceedance(category, amount);
+            checkBudgetExceedance(categoryName, alerts);
             checkFinancialStatus();
         } catch (Exception e) {
             System.out.println("❌ Произошла непредвиденная ошибка: " + e.getMessage());
@@ -245,70 +288,134 @@ public class FinanceManager {
             System.out.print("Введите лимит бюджета: ");
             String limitInput = getInput();
             
-            double limit = validateAmount(limitInput, "бюджета");
+            long limit = validateAmount(limitInput, "бюджета");
             if (limit < 0) return;
             
-            Category category = new Category(categoryName, OperationType.EXPENSE);
-            Budget budget = new Budget(category, limit);
-            currentUser.getWallet().setBudget(budget);
+            List<BudgetAlert> alerts = service.setBudget(currentUser, categoryName, limit);
             
             System.out.println("✅ Бюджет успешно установлен!");
+            checkBudgetExceedance(categoryName, alerts);
         } catch (Exception e) {
             System.out.println("❌ Произошла непредвиденная ошибка: " + e.getMessage());
         }
     }
     
     private void showReport() {
-        Wallet wallet = currentUser.getWallet();
+        System.out.println("\n1. За все время");
+        System.out.println("2. За месяц");
+        System.out.print("Выберите период отчета (Enter - за все время): ");
         
-        System.out.println("\n" + "=".repeat(50));
-        System.out.println("📊 ФИНАНСОВЫЙ ОТЧЕТ");
-        System.out.println("=".repeat(50));
-        
-        System.out.println("💰 Общий доход: " + numberFormat.format(wallet.getTotalIncome()));
-        
-        Map<Category, Double> incomeByCategory = wallet.getIncomeByCategory();
-        if (!incomeByCategory.isEmpty()) {
-            System.out.println("\n📈 Доходы по категориям:");
-            incomeByCategory.forEach((category, amount) -> 
-                System.out.println("   • " + category.getName() + ": " + numberFormat.format(amount)));
+        String periodChoice = getInput();
+        if (periodChoice.isEmpty() || periodChoice.equals("1")) {
+            // Готовый отчет берется из кэша кошелька и выводится уже вне блокировки
+            WalletReport report = service.read(currentUser, wallet -> wallet.getReport(moneyFormat));
+            System.out.print(report.getText());
+            showCategoryDrillDown();
+        } else if (periodChoice.equals("2")) {
+            showMonthlyReport();
         } else {
-            System.out.println("\n📈 Доходы по категориям: нет данных");
+            System.out.println("❌ Неверный выбор!");
+        }
+    }
+    
+    private void showMonthlyReport() {
+        System.out.print("Введите месяц (ГГГГ-ММ): ");
+        YearMonth month;
+        try {
+            month = YearMonth.parse(getInput());
+        } catch (DateTimeParseException e) {
+            System.out.println("❌ Ошибка: введите месяц в формате ГГГГ-ММ, например 2024-03!");
+            return;
         }
         
-        System.out.println("\n💸 Общие расходы: " + numberFormat.format(wallet.getTotalExpenses()));
+        service.withWallet(currentUser, wallet -> {
+            ZoneId zone = wallet.getTimeIndex().getZone();
+            long monthEnd = month.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            printReport(wallet, "📊 ФИНАНСОВЫЙ ОТЧЕТ ЗА " + month,
+                wallet.getIncomeByCategory(month), wallet.getExpensesByCategory(month),
+                "💳 Баланс на конец периода: ", wallet.getBalanceAt(new Date(monthEnd - 1)));
+        });
+    }
+    
+    // Детализация отчета: категория ищется по началу названия без учета регистра, операции выводятся по страницам
+    private void showCategoryDrillDown() {
+        System.out.print("\nВведите начало названия категории для детализации (Enter - вернуться в меню): ");
+        String prefix = getInput();
+        if (prefix.isEmpty()) {
+            return;
+        }
         
-        Map<Category, Double> expensesByCategory = wallet.getExpensesByCategory();
-        if (!expensesByCategory.isEmpty()) {
-            System.out.println("\n📉 Расходы по категориям:");
-            expensesByCategory.forEach((category, amount) -> 
-                System.out.println("   • " + category.getName() + ": " + numberFormat.format(amount)));
-        } else {
-            System.out.println("\n📉 Расходы по категориям: нет данных");
+        List<Category> found = service.read(currentUser, wallet -> wallet.findCategories(prefix));
+        if (found.isEmpty()) {
+            System.out.println("⚠️ Категории, начинающиеся с \"" + prefix + "\", не найдены.");
+            return;
+        }
+        Category category = found.get(0);
+        if (found.size() > 1) {
+            System.out.println("Найдено категорий: " + found.size());
+            for (int i = 0; i < found.size(); i++) {
+                Category candidate = found.get(i);
+                System.out.println((i + 1) + ". " + candidate.getName()
+                    + (candidate.getType() == OperationType.INCOME ? " (доход)" : " (расход)"));
+            }
+            System.out.print("Выберите номер категории: ");
+            try {
+                category = found.get(Integer.parseInt(getInput()) - 1);
+            } catch (NumberFormatException | IndexOutOfBoundsException e) {
+                System.out.println("❌ Неверный выбор!");
+                return;
+            }
         }
         
-        System.out.println("\n🎯 Бюджет по категориям:");
-        Map<Category, Budget> budgets = wallet.getBudgets();
-        Map<Category, Double> categoryExpenses = wallet.getExpensesByCategory();
+        Category selected = category;
+        int count = service.read(currentUser, wallet -> wallet.getOperationCount(selected));
+        System.out.println("\n" + "=".repeat(60));
+        System.out.println((selected.getType() == OperationType.INCOME ? "💰 " : "💸 ") + selected.getName()
+            + " - операций: " + count);
+        System.out.println("=".repeat(60));
         
-        if (budgets.isEmpty()) {
-            System.out.println("   Бюджеты не установлены");
-        } else {
-            budgets.forEach((category, budget) -> {
-                double spent = categoryExpenses.getOrDefault(category, 0.0);
-                double remaining = budget.getLimit() - spent;
-                String status = remaining >= 0 ? "✅" : "❌";
-                
-                System.out.printf("   %s %s: %s, Оставшийся бюджет: %s%n",
-                    status,
-                    category.getName(),
-                    numberFormat.format(budget.getLimit()),
-                    numberFormat.format(remaining));
-            });
+        StringBuilder page = new StringBuilder(HISTORY_PAGE_SIZE * 48);
+        DayFormatter days = new DayFormatter(service.read(currentUser, wallet -> wallet.getTimeIndex().getZone()));
+        int cursor = 0;
+        while (cursor >= 0) {
+            int from = cursor;
+            page.setLength(0);
+            cursor = service.read(currentUser, wallet -> wallet.forEachOperation(selected, from, HISTORY_PAGE_SIZE,
+                (operationCategory, amount, timestamp) -> {
+                    page.append("   ");
+                    days.appendDate(page, timestamp);
+                    page.append("  ");
+                    moneyFormat.appendTo(page, amount);
+                    page.append('\n');
+                }));
+            System.out.print(page);
+            
+            if (cursor >= 0) {
+                System.out.print("Enter - следующая страница, q - завершить просмотр: ");
+                if (getInput().equalsIgnoreCase("q")) {
+                    break;
+                }
+            }
         }
+        System.out.println("=".repeat(60));
+    }
+    
+    private void printReport(Wallet wallet, String title, Map<Category, Long> incomeByCategory,
+                             Map<Category, Long> expensesByCategory, String balanceLabel, long balance) {
+        List<String> incomeLines = new ArrayList<>();
+        incomeByCategory.forEach((category, amount) -> 
+            incomeLines.add(WalletReport.categoryLine(moneyFormat, category, amount)));
+        List<String> expenseLines = new ArrayList<>();
+        expensesByCategory.forEach((category, amount) -> 
+            expenseLines.add(WalletReport.categoryLine(moneyFormat, category, amount)));
+        List<String> budgetLines = new ArrayList<>();
+        wallet.getBudgets().forEach((category, budget) -> 
+            budgetLines.add(WalletReport.budgetLine(moneyFormat, budget, expensesByCategory.getOrDefault(category, 0L))));
         
-        System.out.println("\n💳 Текущий баланс: " + numberFormat.format(wallet.getBalance()));
-        System.out.println("=".repeat(50));
+        long totalIncome = incomeByCategory.values().stream().mapToLong(Long::longValue).sum();
+        long totalExpenses = expensesByCategory.values().stream().mapToLong(Long::longValue).sum();
+        System.out.print(WalletReport.render(moneyFormat, title, totalIncome, incomeLines,
+            totalExpenses, expenseLines, budgetLines, balanceLabel, balance));
     }
     
     private void calculateByCategories() {
@@ -347,33 +454,146 @@ public class FinanceManager {
                 return;
             }
             
-            Map<String, Double> result = currentUser.getWallet().calculateByCategories(categoriesList, type);
-            Set<String> unknownCategories = currentUser.getWallet().getUnknownCategories(categoriesList, type);
+            // Суммы, количество, минимум и максимум и неизвестные категории - одним запросом
+            OperationQuery query = new OperationQuery().categories(categoriesList).type(type);
+            QueryResult result = service.read(currentUser, wallet -> wallet.query(query));
             
-            if (!unknownCategories.isEmpty()) {
-                System.out.println("⚠️ Предупреждение: следующие категории не найдены: " + unknownCategories);
+            if (!result.getUnknownCategories().isEmpty()) {
+                System.out.println("⚠️ Предупреждение: следующие категории не найдены: " + result.getUnknownCategories());
             }
             
-            if (result.isEmpty()) {
+            if (result.getStats().isEmpty()) {
                 System.out.println("По выбранным категориям операций не найдено.");
             } else {
                 System.out.println("\n📊 Результаты подсчета:");
-                result.forEach((category, amount) -> 
-                    System.out.println("   • " + category + ": " + numberFormat.format(amount)));
+                result.getStats().forEach((category, stats) -> 
+                    System.out.println("   • " + category.getName() + ": " + formatMoney(stats.getSum()) +
+                        " (операций: " + stats.getCount() + ", мин: " + formatMoney(stats.getMin()) +
+                        ", макс: " + formatMoney(stats.getMax()) + ")"));
                 
-                double total = result.values().stream().mapToDouble(Double::doubleValue).sum();
-                System.out.println("   Итого: " + numberFormat.format(total));
+                System.out.println("   Итого: " + formatMoney(result.getTotal()));
             }
         } catch (Exception e) {
             System.out.println("❌ Произошла непредвиденная ошибка: " + e.getMessage());
         }
     }
     
-    private void showOperationHistory() {
-        Wallet wallet = currentUser.getWallet();
-        List<Operation> operations = wallet.getOperations();
+    private void exportOperations() {
+        System.out.println("\n1. История операций в CSV");
+        System.out.println("2. История операций в JSON");
+        System.out.println("3. Отчет в CSV");
+        System.out.println("4. Отчет в JSON");
+        System.out.print("Выберите формат выгрузки: ");
+        String choice = getInput();
+        if (!choice.matches("[1-4]")) {
+            System.out.println("❌ Неверный выбор!");
+            return;
+        }
+        boolean history = choice.equals("1") || choice.equals("2");
+        OperationExporter.Format format = choice.equals("1") || choice.equals("3")
+            ? OperationExporter.Format.CSV : OperationExporter.Format.JSON;
         
-        if (operations.isEmpty()) {
+        System.out.print("Введите путь к файлу (Enter - вывести на экран): ");
+        String path = getInput();
+        
+        try {
+            if (path.isEmpty()) {
+                // Вывод на экран идет через тот же буфер, System.out не закрывается
+                Writer writer = new BufferedWriter(new OutputStreamWriter(System.out), 1 << 16);
+                export(writer, format, history);
+                return;
+            }
+            int exported;
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8), 1 << 16)) {
+                exported = export(writer, format, history);
+            }
+            System.out.println(history
+                ? "✅ Выгружено операций: " + exported + " в файл " + path
+                : "✅ Отчет сохранен в файл " + path);
+        } catch (IOException e) {
+            System.out.println("❌ Ошибка при записи: " + e.getMessage());
+        }
+    }
+    
+    // Под блокировкой кошелька только форматируется страница, запись в файл или на экран идет без нее,
+    // поэтому медленный диск не задерживает другие операции пользователя. Операции, добавленные
+    // во время выгрузки, попадают в ее конец
+    private int export(Writer writer, OperationExporter.Format format, boolean history) throws IOException {
+        OperationExporter exporter = new OperationExporter(writer, format,
+                service.read(currentUser, wallet -> wallet.getTimeIndex().getZone()));
+        if (!history) {
+            service.read(currentUser, wallet -> {
+                exporter.appendReport(wallet);
+                return null;
+            });
+            exporter.writePage();
+            writer.flush();
+            return 0;
+        }
+        exporter.beginHistory();
+        int cursor = 0;
+        while (cursor >= 0) {
+            int from = cursor;
+            cursor = service.read(currentUser, wallet -> exporter.appendHistoryPage(wallet, from, EXPORT_PAGE_SIZE));
+            exporter.writePage();
+        }
+        return exporter.endHistory();
+    }
+    
+    private void showDiagnostics() {
+        if (!Metrics.ENABLED) {
+            System.out.println("⚠️ Сбор метрик выключен (-Dfinance.metrics=false).");
+            return;
+        }
+        System.out.println("\n=== 🩺 Диагностика ===");
+        System.out.print(Metrics.toTable());
+        System.out.println("\nКэш кошельков: " + service.getCache());
+        try {
+            Metrics.dump(METRICS_FILE);
+            System.out.println("✅ Метрики в формате Prometheus записаны в " + METRICS_FILE.getPath());
+        } catch (IOException e) {
+            System.out.println("⚠️ Не удалось записать метрики: " + e.getMessage());
+        }
+    }
+    
+    private void importOperations() {
+        System.out.println("Формат строк: дата,тип,категория,сумма (например: 2024-03-15,расход,Еда,1250.50)");
+        System.out.print("Введите путь к CSV-файлу: ");
+        String path = getInput();
+        File file = new File(path);
+        if (!file.isFile()) {
+            System.out.println("❌ Файл не найден: " + path);
+            return;
+        }
+        
+        CsvImporter importer = new CsvImporter(service, currentUser);
+        try {
+            importer.importFile(file);
+        } catch (IOException e) {
+            // Уже примененные пачки остаются в кошельке и в журнале
+            System.out.println("❌ Ошибка при чтении файла: " + e.getMessage());
+        }
+        importer.printSummary(System.out);
+        
+        for (BudgetAlert alert : importer.getAlerts()) {
+            if (alert.isExceeded()) {
+                System.out.println("⚠️ Внимание: превышен бюджет для категории '" + alert.getCategory().getName() + "'!");
+            } else {
+                System.out.println("⚠️ Внимание: израсходовано более " + alert.getThresholdPercent() +
+                    "% бюджета категории '" + alert.getCategory().getName() + "' (" +
+                    formatMoney(alert.getSpent()) + " из " + formatMoney(alert.getLimit()) + ")");
+            }
+        }
+        if (importer.getImported() > 0) {
+            checkFinancialStatus();
+        }
+    }
+    
+    // История выводится страницами: каждая страница собирается в один буфер и печатается целиком,
+    // а блокировка кошелька держится только на время сборки страницы
+    private void showOperationHistory() {
+        if (service.read(currentUser, Wallet::getOperationCount) == 0) {
             System.out.println("История операций пуста.");
             return;
         }
@@ -382,13 +602,26 @@ public class FinanceManager {
         System.out.println("📋 ИСТОРИЯ ОПЕРАЦИЙ");
         System.out.println("=".repeat(60));
         
-        operations.forEach(op -> {
-            String type = op.getCategory().getType() == OperationType.INCOME ? "💰 Доход" : "💸 Расход";
-            System.out.printf("   %s: %s - %s%n", 
-                type, 
-                numberFormat.format(op.getAmount()),
-                op.getCategory().getName());
-        });
+        StringBuilder page = new StringBuilder(HISTORY_PAGE_SIZE * 64);
+        int cursor = 0;
+        while (cursor >= 0) {
+            int from = cursor;
+            page.setLength(0);
+            cursor = service.read(currentUser, wallet -> wallet.forEachOperation(from, HISTORY_PAGE_SIZE,
+                (category, amount, timestamp) -> {
+                    page.append(category.getType() == OperationType.INCOME ? "   💰 Доход: " : "   💸 Расход: ");
+                    moneyFormat.appendTo(page, amount);
+                    page.append(" - ").append(category.getName()).append('\n');
+                }));
+            System.out.print(page);
+            
+            if (cursor >= 0) {
+                System.out.print("Enter - следующая страница, q - завершить просмотр: ");
+                if (getInput().equalsIgnoreCase("q")) {
+                    break;
+                }
+            }
+        }
         
         System.out.println("=".repeat(60));
     }
@@ -408,7 +641,7 @@ public class FinanceManager {
                 return;
             }
             
-            if (!users.containsKey(recipientLogin)) {
+            if (!service.isRegistered(recipientLogin)) {
                 System.out.println("❌ Пользователь с таким логином не найден!");
                 return;
             }
@@ -416,16 +649,16 @@ public class FinanceManager {
             System.out.print("Введите сумму перевода: ");
             String amountInput = getInput();
             
-            double amount = validateAmount(amountInput, "перевода");
+            long amount = validateAmount(amountInput, "перевода");
             if (amount < 0) return;
             
-            if (currentUser.getWallet().getBalance() < amount) {
+            if (service.read(currentUser, Wallet::getBalance) < amount) {
                 System.out.println("❌ Ошибка: недостаточно средств для перевода!");
                 return;
             }
             
             // Подтверждение перевода
-            System.out.print("Вы уверены, что хотите перевести " + numberFormat.format(amount) + 
+            System.out.print("Вы уверены, что хотите перевести " + formatMoney(amount) + 
                     " пользователю " + recipientLogin + "? (да/нет): ");
      String confirmation = getInput().toLowerCase();
      if (!confirmation.equals("да") && !confirmation.equals("yes")) {
@@ -433,72 +666,48 @@ public class FinanceManager {
          return;
      }
      
-     // Создаем операцию расхода у отправителя
-     Category transferExpenseCategory = new Category("Перевод пользователю " + recipientLogin, OperationType.EXPENSE);
-     Operation expenseOperation = new Operation(transferExpenseCategory, amount);
-     currentUser.getWallet().addOperation(expenseOperation);
-     
-     // Создаем операцию дохода у получателя
-     Category transferIncomeCategory = new Category("Перевод от пользователя " + currentUser.getLogin(), OperationType.INCOME);
-     Operation incomeOperation = new Operation(transferIncomeCategory, amount);
-     users.get(recipientLogin).getWallet().addOperation(incomeOperation);
-     
-     // Сохраняем данные получателя
-     saveUserData(users.get(recipientLogin));
+     // Баланс повторно проверяется под блокировкой: пока шло подтверждение, его могли изменить
+     service.transfer(currentUser, recipientLogin, amount);
      
      System.out.println("✅ Перевод успешно выполнен!");
+ } catch (FinanceException e) {
+     System.out.println("❌ " + e.getMessage());
  } catch (Exception e) {
      System.out.println("❌ Произошла непредвиденная ошибка при переводе: " + e.getMessage());
  }
 }
 
-private double validateAmount(String amountInput, String operationType) {
- if (amountInput.isEmpty()) {
-     System.out.println("❌ Ошибка: сумма " + operationType + " не может быть пустой!");
-     return -1;
- }
- 
- double amount;
+// Возвращает сумму в копейках или -1, если ввод некорректен
+private long validateAmount(String amountInput, String operationType) {
  try {
-     amount = Double.parseDouble(amountInput);
- } catch (NumberFormatException e) {
-     System.out.println("❌ Ошибка: введите корректное число для суммы!");
+     return InputRules.parseAmount(amountInput, operationType);
+ } catch (FinanceException e) {
+     System.out.println("❌ " + e.getMessage());
      return -1;
  }
- 
- if (amount <= 0) {
-     System.out.println("❌ Ошибка: сумма должна быть положительной!");
-     return -1;
- }
- 
- if (amount > 1_000_000_000) {
-     System.out.println("❌ Ошибка: сумма слишком большая!");
-     return -1;
- }
- 
- return amount;
 }
 
-private void checkBudgetExceedance(Category category, double newExpense) {
- Budget budget = currentUser.getWallet().getBudgets().get(category);
- if (budget != null) {
-     double currentSpent = currentUser.getWallet().getExpensesByCategory()
-         .getOrDefault(category, 0.0);
-     
-     if (currentSpent > budget.getLimit()) {
-         System.out.println("⚠️ Внимание: превышен бюджет для категории '" + 
-             category.getName() + "'!");
+private void checkBudgetExceedance(String categoryName, List<BudgetAlert> alerts) {
+ for (BudgetAlert alert : alerts) {
+     if (!alert.isExceeded()) {
+         System.out.println("⚠️ Внимание: израсходовано более " + alert.getThresholdPercent() +
+             "% бюджета категории '" + alert.getCategory().getName() + "' (" +
+             formatMoney(alert.getSpent()) + " из " + formatMoney(alert.getLimit()) + ")");
      }
  }
+ 
+ if (service.read(currentUser, wallet -> wallet.isBudgetExceeded(wallet.getCategory(categoryName, OperationType.EXPENSE)))) {
+     System.out.println("⚠️ Внимание: превышен бюджет для категории '" + 
+         categoryName + "'!");
+ }
 }
 
 private void checkFinancialStatus() {
- Wallet wallet = currentUser.getWallet();
- if (wallet.getTotalExpenses() > wallet.getTotalIncome()) {
+ if (service.read(currentUser, wallet -> wallet.getTotalExpenses() > wallet.getTotalIncome())) {
      System.out.println("⚠️ Внимание: расходы превышают доходы!");
  }
  
- if (wallet.getBalance() < 0) {
+ if (service.read(currentUser, Wallet::getBalance) < 0) {
      System.out.println("🚨 Критическое предупреждение: отрицательный баланс!");
  }
 }
@@ -513,39 +722,34 @@ private void exitApplication() {
  if (currentUser != null) {
      saveUserData();
  }
+ service.close();
+ if (Metrics.ENABLED) {
+     try {
+         Metrics.dump(METRICS_FILE);
+     } catch (IOException e) {
+         System.out.println("⚠️ Не удалось записать метрики: " + e.getMessage());
+     }
+ }
  System.out.println("До свидания! Спасибо за использование нашего приложения!");
  System.exit(0);
 }
 
 private void loadUserData() {
  try {
-     File file = new File(currentUser.getLogin() + ".dat");
-     if (file.exists()) {
-         ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file));
-         User savedUser = (User) ois.readObject();
-         currentUser.getWallet().getOperations().clear();
-         currentUser.getWallet().getOperations().addAll(savedUser.getWallet().getOperations());
-         currentUser.getWallet().getBudgets().putAll(savedUser.getWallet().getBudgets());
-         ois.close();
+     if (service.loadWallet(currentUser)) {
          System.out.println("✅ Данные пользователя загружены.");
      }
- } catch (IOException | ClassNotFoundException e) {
+ } catch (IOException e) {
      System.out.println("⚠️ Ошибка при загрузке данных: " + e.getMessage());
  }
 }
 
 private void saveUserData() {
- if (currentUser != null) {
-     saveUserData(currentUser);
+ if (currentUser == null) {
+     return;
  }
-}
-
-private void saveUserData(User user) {
  try {
-     File file = new File(user.getLogin() + ".dat");
-     ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file));
-     oos.writeObject(user);
-     oos.close();
+     service.flush(currentUser);
  } catch (IOException e) {
      System.out.println("⚠️ Ошибка при сохранении данных: " + e.getMessage());
  }
@@ -0,0 +1,536 @@
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.text.NumberFormat;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// HTTP/JSON-режим: те же операции, что и в консоли, для многих пользователей одновременно поверх потокобезопасного FinanceService.
+// Запуск: java FinanceServer [порт] [каталог] или java FinanceManager --server [порт] [каталог].
+// Вход возвращает токен, остальные запросы передают его в заголовке "Authorization: Bearer <токен>"
+public class FinanceServer {
+    public static final int DEFAULT_PORT = Integer.getInteger("finance.httpPort", 8080);
+    // Пароли передаются обычным HTTP, а /api/metrics открыт без входа, поэтому по умолчанию сервер слушает
+    // только локальный адрес; другой адрес (например, 0.0.0.0) задается явно через -Dfinance.httpHost
+    private static final String BIND_HOST = System.getProperty("finance.httpHost");
+    // Потоки обработки запросов, если виртуальных потоков нет (Java до 21); задается -Dfinance.httpThreads
+    private static final int FALLBACK_THREADS = Integer.getInteger("finance.httpThreads", 200);
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    
+    static {
+        // Встроенный сервер пишет заголовки и тело ответа отдельно; с алгоритмом Нейгла и отложенным ACK
+        // у клиента каждый ответ ждет ~40 мс. Настройка читается при первом создании HttpServer
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+    
+    private static final Metrics.Timer REQUEST_TIMER = Metrics.timer("finance_http_request_seconds",
+            "Обработка HTTP-запроса целиком");
+    private static final Metrics.Counter ERRORS = Metrics.counter("finance_http_errors_total",
+            "HTTP-запросы, завершившиеся ошибкой");
+    
+    private final FinanceService service;
+    private final SessionStore sessions;
+    private final MoneyFormat moneyFormat;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService housekeeping;
+    
+    // Ошибка запроса с HTTP-статусом; текст показывается клиенту
+    private static class ApiError extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+        
+        final int status;
+        
+        ApiError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+    
+    public FinanceServer(FinanceService service, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.sessions = new SessionStore(SessionStore.DEFAULT_IDLE_TIMEOUT_MILLIS);
+        NumberFormat numberFormat = NumberFormat.getInstance();
+        numberFormat.setMinimumFractionDigits(1);
+        numberFormat.setMaximumFractionDigits(2);
+        numberFormat.setGroupingUsed(true);
+        // Один формат на весь сервер: он потокобезопасен, а кэш отчетов кошелька привязан к экземпляру формата
+        this.moneyFormat = new MoneyFormat(numberFormat);
+        this.server = HttpServer.create(address, 1024);
+        this.executor = newRequestExecutor();
+        this.housekeeping = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.createContext("/api/", this::handle);
+        server.setExecutor(executor);
+        Metrics.gauge("finance_http_sessions", "Открытые сессии HTTP-сервиса", sessions::size);
+    }
+    
+    // Виртуальные потоки ищутся через отражение, поэтому сборка остается совместимой с Java 17:
+    // там запросы обслуживает пул обычных потоков
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger counter = new AtomicInteger();
+            return Executors.newFixedThreadPool(FALLBACK_THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "http-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+    
+    public void start() {
+        server.start();
+        housekeeping.scheduleAtFixedRate(sessions::expireIdle, 1, 1, TimeUnit.MINUTES);
+    }
+    
+    public int getPort() { return server.getAddress().getPort(); }
+    public SessionStore getSessions() { return sessions; }
+    
+    // Останавливает прием запросов, фиксирует на диске журналы пользователей с открытыми сессиями
+    // и дожидается подписчиков потока событий
+    public void stop() {
+        server.stop(0);
+        housekeeping.shutdownNow();
+        executor.shutdown();
+        for (User user : sessions.users()) {
+            try {
+                service.flush(user);
+            } catch (IOException e) {
+                System.out.println("⚠️ Ошибка при сохранении данных " + user.getLogin() + ": " + e.getMessage());
+            }
+        }
+        service.close();
+    }
+    
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        File directory = new File(args.length > 1 ? args[1] : ".");
+        InetSocketAddress address = BIND_HOST == null
+                ? new InetSocketAddress(InetAddress.getLoopbackAddress(), port)
+                : new InetSocketAddress(BIND_HOST, port);
+        FinanceServer server = new FinanceServer(new FinanceService(new UserStorage(directory)), address);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        server.start();
+        System.out.println("✅ Сервер запущен: http://" + address.getHostString() + ":" + server.getPort()
+                + "/api/, каталог данных: " + directory.getAbsolutePath());
+    }
+    
+    private void handle(HttpExchange exchange) {
+        long started = REQUEST_TIMER.start();
+        StringBuilder out = new StringBuilder(256);
+        int status;
+        try {
+            status = dispatch(exchange, out);
+        } catch (ApiError e) {
+            status = error(out, e.status, e.getMessage());
+        } catch (FinanceException e) {
+            status = error(out, 400, e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            // Подробности остаются в журнале сервера: текст исключения может раскрыть пути и внутреннее устройство
+            System.out.println("⚠️ Ошибка при обработке " + exchange.getRequestMethod() + " "
+                    + exchange.getRequestURI().getPath() + ": " + e);
+            status = error(out, 500, "Внутренняя ошибка сервера");
+        }
+        try {
+            byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+            boolean json = out.length() > 0 && (out.charAt(0) == '{' || out.charAt(0) == '[');
+            exchange.getResponseHeaders().set("Content-Type",
+                    json ? "application/json; charset=utf-8" : "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(status, body.length);
+            exchange.getResponseBody().write(body);
+        } catch (IOException e) {
+            // Клиент уже отключился - отвечать некому
+        } finally {
+            exchange.close();
+            REQUEST_TIMER.stop(started);
+        }
+    }
+    
+    private static int error(StringBuilder out, int status, String message) {
+        ERRORS.increment();
+        out.setLength(0);
+        out.append("{\"error\":");
+        Json.appendString(out, message);
+        out.append('}');
+        return status;
+    }
+    
+    private int dispatch(HttpExchange exchange, StringBuilder out) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        switch (path) {
+            case "/api/register":
+                requireMethod(method, "POST");
+                return register(readBody(exchange), out);
+            case "/api/login":
+                requireMethod(method, "POST");
+                return login(readBody(exchange), out);
+            case "/api/logout":
+                requireMethod(method, "POST");
+                return logout(exchange, out);
+            case "/api/balance":
+                requireMethod(method, "GET");
+                return balance(authenticate(exchange), out);
+            case "/api/income":
+                requireMethod(method, "POST");
+                return addOperation(authenticate(exchange), readBody(exchange), OperationType.INCOME, out);
+            case "/api/expense":
+                requireMethod(method, "POST");
+                return addOperation(authenticate(exchange), readBody(exchange), OperationType.EXPENSE, out);
+            case "/api/budget":
+                requireMethod(method, "POST");
+                return setBudget(authenticate(exchange), readBody(exchange), out);
+            case "/api/report":
+                requireMethod(method, "GET");
+                return report(authenticate(exchange), queryParameters(exchange).get("month"), out);
+            case "/api/calculate":
+                requireMethod(method, "POST");
+                return calculate(authenticate(exchange), readBody(exchange), out);
+            case "/api/transfer":
+                requireMethod(method, "POST");
+                return transfer(authenticate(exchange), readBody(exchange), out);
+            case "/api/metrics":
+                requireMethod(method, "GET");
+                out.append(Metrics.toPrometheusText());
+                return 200;
+            default:
+                throw new ApiError(404, "Неизвестный адрес: " + path);
+        }
+    }
+    
+    private int register(Map<String, Object> body, StringBuilder out) {
+        String login = stringField(body, "login");
+        String password = stringField(body, "password");
+        InputRules.checkLogin(login);
+        InputRules.checkPassword(password);
+        if (!service.register(login, password)) {
+            throw new ApiError(409, "Пользователь с таким логином уже существует!");
+        }
+        out.append("{\"login\":");
+        Json.appendString(out, login);
+        out.append('}');
+        return 201;
+    }
+    
+    private int login(Map<String, Object> body, StringBuilder out) throws IOException {
+        String login = stringField(body, "login");
+        String password = stringField(body, "password");
+        User user = login == null || password == null ? null : service.authenticate(login, password);
+        if (user == null) {
+            throw new ApiError(401, "Неверный логин или пароль!");
+        }
+        service.loadWallet(user);
+        out.append("{\"token\":");
+        Json.appendString(out, sessions.open(user));
+        out.append(",\"login\":");
+        Json.appendString(out, user.getLogin());
+        out.append('}');
+        return 200;
+    }
+    
+    private int logout(HttpExchange exchange, StringBuilder out) throws IOException {
+        User user = sessions.close(token(exchange));
+        if (user == null) {
+            throw new ApiError(401, "Требуется вход: сессия не найдена или истекла");
+        }
+        service.flush(user);
+        out.append("{\"loggedOut\":true}");
+        return 200;
+    }
+    
+    private int balance(User user, StringBuilder out) {
+        long[] totals = service.read(user, wallet -> new long[] {wallet.getTotalIncome(), wallet.getTotalExpenses()});
+        out.append("{\"totalIncome\":");
+        MoneyFormat.appendPlain(out, totals[0]);
+        out.append(",\"totalExpenses\":");
+        MoneyFormat.appendPlain(out, totals[1]);
+        out.append(",\"balance\":");
+        MoneyFormat.appendPlain(out, totals[0] - totals[1]);
+        out.append('}');
+        return 200;
+    }
+    
+    private int addOperation(User user, Map<String, Object> body, OperationType type, StringBuilder out)
+            throws IOException {
+        String category = stringField(body, "category");
+        InputRules.checkCategory(category);
+        long amount = InputRules.parseAmount(amountField(body, "amount"),
+                type == OperationType.INCOME ? "дохода" : "расхода");
+        List<BudgetAlert> alerts = service.addOperation(user, category, type, amount);
+        out.append("{\"balance\":");
+        MoneyFormat.appendPlain(out, service.read(user, Wallet::getBalance));
+        appendAlerts(out, alerts);
+        out.append('}');
+        return 201;
+    }
+    
+    private int setBudget(User user, Map<String, Object> body, StringBuilder out) throws IOException {
+        String category = stringField(body, "category");
+        InputRules.checkCategory(category);
+        long limit = InputRules.parseAmount(amountField(body, "limit"), "бюджета");
+        List<BudgetAlert> alerts = service.setBudget(user, category, limit);
+        out.append("{\"category\":");
+        Json.appendString(out, category);
+        out.append(",\"limit\":");
+        MoneyFormat.appendPlain(out, limit);
+        appendAlerts(out, alerts);
+        out.append('}');
+        return 200;
+    }
+    
+    private static void appendAlerts(StringBuilder out, List<BudgetAlert> alerts) {
+        out.append(",\"alerts\":[");
+        for (int i = 0; i < alerts.size(); i++) {
+            BudgetAlert alert = alerts.get(i);
+            out.append(i == 0 ? "{\"category\":" : ",{\"category\":");
+            Json.appendString(out, alert.getCategory().getName());
+            out.append(",\"thresholdPercent\":").append(alert.getThresholdPercent());
+            out.append(",\"spent\":");
+            MoneyFormat.appendPlain(out, alert.getSpent());
+            out.append(",\"limit\":");
+            MoneyFormat.appendPlain(out, alert.getLimit());
+            out.append(",\"exceeded\":").append(alert.isExceeded()).append('}');
+        }
+        out.append(']');
+    }
+    
+    // Отчет за все время берется из кэша отчетов кошелька вместе с готовым текстом; за месяц - считается по индексу времени
+    private int report(User user, String month, StringBuilder out) {
+        if (month == null) {
+            WalletReport report = service.read(user, wallet -> wallet.getReport(moneyFormat));
+            appendReport(out, report.getTotalIncome(), report.getTotalExpenses(), report.getBalance(),
+                    report.getIncomeByCategory(), report.getExpensesByCategory(), report.getBudgets());
+            out.append(",\"text\":");
+            Json.appendString(out, report.getText());
+            out.append('}');
+            return 200;
+        }
+        
+        YearMonth period;
+        try {
+            period = YearMonth.parse(month);
+        } catch (DateTimeParseException e) {
+            throw new FinanceException("Ошибка: введите месяц в формате ГГГГ-ММ, например 2024-03!");
+        }
+        service.withWallet(user, wallet -> {
+            Map<Category, Long> income = wallet.getIncomeByCategory(period);
+            Map<Category, Long> expenses = wallet.getExpensesByCategory(period);
+            ZoneId zone = wallet.getTimeIndex().getZone();
+            long monthEnd = period.plusMonths(1).atDay(1).atStartOfDay(zone).toInstant().toEpochMilli();
+            appendReport(out, sum(income), sum(expenses), wallet.getBalanceAt(new Date(monthEnd - 1)),
+                    income, expenses, wallet.getBudgets());
+        });
+        out.append(",\"month\":");
+        Json.appendString(out, period.toString());
+        out.append('}');
+        return 200;
+    }
+    
+    private static long sum(Map<Category, Long> sums) {
+        return sums.values().stream().mapToLong(Long::longValue).sum();
+    }
+    
+    // Объект отчета без закрывающей скобки: вызывающий дописывает свои поля
+    private static void appendReport(StringBuilder out, long totalIncome, long totalExpenses, long balance,
+                                     Map<Category, Long> income, Map<Category, Long> expenses,
+                                     Map<Category, Budget> budgets) {
+        out.append("{\"totalIncome\":");
+        MoneyFormat.appendPlain(out, totalIncome);
+        out.append(",\"totalExpenses\":");
+        MoneyFormat.appendPlain(out, totalExpenses);
+        out.append(",\"balance\":");
+        MoneyFormat.appendPlain(out, balance);
+        out.append(",\"income\":");
+        appendTotals(out, income);
+        out.append(",\"expenses\":");
+        appendTotals(out, expenses);
+        out.append(",\"budgets\":[");
+        boolean first = true;
+        for (Map.Entry<Category, Budget> entry : budgets.entrySet()) {
+            long spent = expenses.getOrDefault(entry.getKey(), 0L);
+            out.append(first ? "{\"category\":" : ",{\"category\":");
+            Json.appendString(out, entry.getKey().getName());
+            out.append(",\"limit\":");
+            MoneyFormat.appendPlain(out, entry.getValue().getLimit());
+            out.append(",\"spent\":");
+            MoneyFormat.appendPlain(out, spent);
+            out.append(",\"remaining\":");
+            MoneyFormat.appendPlain(out, entry.getValue().getLimit() - spent);
+            out.append('}');
+            first = false;
+        }
+        out.append(']');
+    }
+    
+    private static void appendTotals(StringBuilder out, Map<Category, Long> totals) {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<Category, Long> entry : totals.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            Json.appendString(out, entry.getKey().getName());
+            out.append(':');
+            MoneyFormat.appendPlain(out, entry.getValue());
+            first = false;
+        }
+        out.append('}');
+    }
+    
+    private int calculate(User user, Map<String, Object> body, StringBuilder out) {
+        String typeName = stringField(body, "type");
+        OperationType type;
+        if ("income".equals(typeName)) {
+            type = OperationType.INCOME;
+        } else if ("expense".equals(typeName)) {
+            type = OperationType.EXPENSE;
+        } else {
+            throw new FinanceException("Ошибка: поле 'type' должно быть \"income\" или \"expense\"!");
+        }
+        Object names = body.get("categories");
+        if (!(names instanceof List) || ((List<?>) names).isEmpty()) {
+            throw new FinanceException("Ошибка: не введены категории!");
+        }
+        List<String> categories = new ArrayList<>();
+        for (Object name : (List<?>) names) {
+            if (!(name instanceof String) || ((String) name).trim().isEmpty()) {
+                throw new FinanceException("Ошибка: не введены корректные названия категорий!");
+            }
+            categories.add(((String) name).trim());
+        }
+        
+        OperationQuery query = new OperationQuery().categories(categories).type(type);
+        QueryResult result = service.read(user, wallet -> wallet.query(query));
+        out.append("{\"categories\":[");
+        boolean first = true;
+        for (CategoryStats stats : result.getStats().values()) {
+            out.append(first ? "{\"category\":" : ",{\"category\":");
+            Json.appendString(out, stats.getCategory().getName());
+            out.append(",\"sum\":");
+            MoneyFormat.appendPlain(out, stats.getSum());
+            out.append(",\"count\":").append(stats.getCount());
+            out.append(",\"min\":");
+            MoneyFormat.appendPlain(out, stats.getMin());
+            out.append(",\"max\":");
+            MoneyFormat.appendPlain(out, stats.getMax());
+            out.append('}');
+            first = false;
+        }
+        out.append("],\"unknown\":[");
+        first = true;
+        for (String unknown : result.getUnknownCategories()) {
+            if (!first) {
+                out.append(',');
+            }
+            Json.appendString(out, unknown);
+            first = false;
+        }
+        out.append("],\"total\":");
+        MoneyFormat.appendPlain(out, result.getTotal());
+        out.append('}');
+        return 200;
+    }
+    
+    private int transfer(User user, Map<String, Object> body, StringBuilder out) throws IOException {
+        String recipient = stringField(body, "recipient");
+        if (recipient == null || recipient.isEmpty()) {
+            throw new FinanceException("Ошибка: логин получателя не может быть пустым!");
+        }
+        long amount = InputRules.parseAmount(amountField(body, "amount"), "перевода");
+        service.transfer(user, recipient, amount);
+        out.append("{\"recipient\":");
+        Json.appendString(out, recipient);
+        out.append(",\"amount\":");
+        MoneyFormat.appendPlain(out, amount);
+        out.append(",\"balance\":");
+        MoneyFormat.appendPlain(out, service.read(user, Wallet::getBalance));
+        out.append('}');
+        return 200;
+    }
+    
+    private static void requireMethod(String actual, String expected) {
+        if (!expected.equals(actual)) {
+            throw new ApiError(405, "Метод " + actual + " не поддерживается, ожидается " + expected);
+        }
+    }
+    
+    private static String token(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+    }
+    
+    private User authenticate(HttpExchange exchange) {
+        User user = sessions.get(token(exchange));
+        if (user == null) {
+            throw new ApiError(401, "Требуется вход: сессия не найдена или истекла");
+        }
+        return user;
+    }
+    
+    private static Map<String, Object> readBody(HttpExchange exchange) throws IOException {
+        byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+        if (body.length > MAX_BODY_BYTES) {
+            throw new ApiError(413, "Слишком большое тело запроса");
+        }
+        return Json.parseObject(new String(body, StandardCharsets.UTF_8));
+    }
+    
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+    
+    private static String stringField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new FinanceException("Ошибка: поле '" + name + "' должно быть строкой!");
+        }
+        return value == null ? null : ((String) value).trim();
+    }
+    
+    // Сумма принимается числом или строкой; число не проходит через double
+    private static String amountField(Map<String, Object> body, String name) {
+        Object value = body.get(name);
+        if (value instanceof BigDecimal) {
+            return value.toString();
+        }
+        if (value != null && !(value instanceof String)) {
+            throw new FinanceException("Ошибка: поле '" + name + "' должно быть числом!");
+        }
+        return value == null ? null : ((String) value).trim();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,395 @@
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Потокобезопасное ядро: пользователи хранятся в постоянном реестре и в памяти появляются при первом обращении,
+// кошельки защищены полосами блокировок по логину. Кошельки загружаются при первом обращении,
+// а давно не использованные выгружаются, когда кэш превышает бюджет памяти
+public class FinanceService {
+    private static final int LOCK_STRIPES = 64;
+    
+    private static final Metrics.Timer LOAD_TIMER = Metrics.timer("finance_wallet_load_seconds",
+            "Загрузка кошелька: снимок, хвост журнала и переводы");
+    private static final Metrics.Timer FLUSH_TIMER = Metrics.timer("finance_wallet_flush_seconds",
+            "Фиксация журнала на диске и сжатие по порогу");
+    private static final Metrics.Timer TRANSFER_TIMER = Metrics.timer("finance_transfer_seconds",
+            "Перевод между пользователями, включая ожидание блокировок");
+    private static final Metrics.Counter TRANSFERS_REJECTED = Metrics.counter("finance_transfers_rejected_total",
+            "Переводы, отклоненные из-за нехватки средств");
+    
+    private final ConcurrentHashMap<String, User> users = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final UserStorage storage;
+    private final UserRegistry registry;
+    private final WalletCache cache;
+    // Изменения кошельков для подписчиков вне пути записи: метрики объемов, журнал оповещений
+    private final WalletEventStream events = new WalletEventStream(WalletEventStream.DEFAULT_CAPACITY);
+    
+    public FinanceService(UserStorage storage) throws IOException {
+        this(storage, new UserRegistry(storage.getDirectory()), new WalletCache(WalletCache.DEFAULT_MEMORY_BUDGET));
+    }
+    
+    public FinanceService(UserStorage storage, UserRegistry registry, WalletCache cache) {
+        this.storage = storage;
+        this.registry = registry;
+        this.cache = cache;
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        
+        Metrics.gauge("finance_wallet_cache_resident", "Загруженные кошельки", cache::getResidentCount);
+        Metrics.gauge("finance_wallet_cache_bytes", "Оценка объема загруженных кошельков в байтах", cache::getResidentBytes);
+        Metrics.gauge("finance_wallet_cache_hits", "Обращения к уже загруженным кошелькам", cache::getHits);
+        Metrics.gauge("finance_wallet_cache_misses", "Обращения, потребовавшие загрузки кошелька", cache::getMisses);
+        Metrics.gauge("finance_wallet_cache_evictions", "Выгрузки кошельков из памяти", cache::getEvictions);
+        Metrics.gauge("finance_users_registered", "Пользователи в реестре", registry::size);
+        
+        if (Metrics.ENABLED) {
+            events.subscribe("metrics", new EventMetrics());
+        }
+        // Журнал оповещений для сопровождения: -Dfinance.alertLog=<файл>
+        String alertLog = System.getProperty("finance.alertLog");
+        if (alertLog != null) {
+            try {
+                events.subscribe("alert-log", new AlertLog(new File(alertLog)));
+            } catch (IOException e) {
+                System.out.println("⚠️ Не удалось открыть журнал оповещений: " + e.getMessage());
+            }
+        }
+    }
+    
+    private int stripe(String login) {
+        int h = login.hashCode();
+        return (h ^ (h >>> 16)) & (LOCK_STRIPES - 1);
+    }
+    
+    private ReentrantLock lockFor(User user) {
+        return locks[stripe(user.getLogin())];
+    }
+    
+    public WalletCache getCache() { return cache; }
+    public WalletEventStream getEvents() { return events; }
+    
+    public boolean register(String login, String password) {
+        try {
+            return registry.register(login, password) != null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public boolean isRegistered(String login) {
+        return getUser(login) != null;
+    }
+    
+    // Пользователь создается по записи реестра при первом обращении и дальше остается в памяти;
+    // кошелек при этом не загружается
+    public User getUser(String login) {
+        User user = users.get(login);
+        if (user != null) {
+            return user;
+        }
+        UserRegistry.Entry entry;
+        try {
+            entry = registry.find(login);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (entry == null) {
+            return null;
+        }
+        User created = new User(entry.getLogin(), entry.getCredentials(), entry.getWalletName());
+        user = users.putIfAbsent(login, created);
+        return user != null ? user : created;
+    }
+    
+    public User authenticate(String login, String password) {
+        User user = getUser(login);
+        return user != null && user.validatePassword(password) ? user : null;
+    }
+    
+    // Возвращает true, если данные пользователя были восстановлены с диска
+    public boolean loadWallet(User user) throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        boolean restored;
+        try {
+            restored = loadLocked(user);
+        } finally {
+            lock.unlock();
+        }
+        evictIfNeeded(user);
+        return restored;
+    }
+    
+    // Загружает кошелек, если его нет в памяти, и отмечает обращение в кэше; вызывается под блокировкой пользователя
+    private boolean loadLocked(User user) throws IOException {
+        boolean restored = false;
+        if (storage.isLoaded(user)) {
+            cache.recordHit();
+        } else {
+            cache.recordMiss();
+            long started = LOAD_TIMER.start();
+            try {
+                restored = storage.load(user);
+            } catch (ClassNotFoundException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            LOAD_TIMER.stop(started);
+        }
+        cache.touch(user, user.getWallet().estimateMemory());
+        return restored;
+    }
+    
+    private Wallet walletLocked(User user) throws IOException {
+        loadLocked(user);
+        return user.getWallet();
+    }
+    
+    // Выгружает самые старые кошельки, пока кэш не вернется в бюджет. Блокировки кандидатов берутся через tryLock:
+    // занятый кошелек сейчас используется и просто пропускается, поэтому выгрузка не может привести к взаимоблокировке
+    private void evictIfNeeded(User keep) throws IOException {
+        if (!cache.isOverBudget()) {
+            return;
+        }
+        for (User victim : cache.evictionCandidates(keep)) {
+            ReentrantLock lock = lockFor(victim);
+            if (!lock.tryLock()) {
+                continue;
+            }
+            try {
+                if (storage.isLoaded(victim)) {
+                    storage.unload(victim);
+                    cache.recordEviction();
+                }
+                cache.remove(victim);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+    
+    // Добавляет операцию и возвращает оповещения о бюджетах, вызванные ею
+    public List<BudgetAlert> addOperation(User user, String categoryName, OperationType type, long amount)
+            throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        List<BudgetAlert> alerts;
+        Category category;
+        long balance;
+        long sequence;
+        try {
+            Wallet wallet = walletLocked(user);
+            category = wallet.getCategory(categoryName, type);
+            wallet.addOperation(new Operation(category, amount));
+            storage.checkpointIfNeeded(user);
+            alerts = wallet.pollBudgetAlerts();
+            balance = wallet.getBalance();
+            // Номера событий берутся под блокировкой, поэтому события одного кошелька идут в порядке журнала;
+            // публикуются они после ее снятия, чтобы отставший подписчик не держал кошельки полосы
+            sequence = events.reserve(1 + alerts.size());
+        } finally {
+            lock.unlock();
+        }
+        sequence = events.publishOperation(sequence, user.getLogin(), category, amount, balance);
+        events.publishAlerts(sequence, user.getLogin(), alerts, balance);
+        evictIfNeeded(user);
+        return alerts;
+    }
+    
+    // Пачка применяется под одной блокировкой и фиксируется в журнале одним fsync
+    public List<BudgetAlert> addOperations(User user, OperationBatch batch) throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        List<BudgetAlert> alerts;
+        long balance;
+        long sequence;
+        try {
+            Wallet wallet = walletLocked(user);
+            balance = wallet.getBalance();
+            wallet.addOperations(batch);
+            storage.checkpointIfNeeded(user);
+            alerts = wallet.pollBudgetAlerts();
+            sequence = events.reserve(batch.size() + alerts.size());
+        } finally {
+            lock.unlock();
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Category category = batch.getCategory(i);
+            balance += category.getType() == OperationType.INCOME ? batch.getAmount(i) : -batch.getAmount(i);
+            sequence = events.publishOperation(sequence, user.getLogin(), category, batch.getAmount(i), balance);
+        }
+        events.publishAlerts(sequence, user.getLogin(), alerts, balance);
+        evictIfNeeded(user);
+        return alerts;
+    }
+    
+    public List<BudgetAlert> setBudget(User user, String categoryName, long limit) throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        List<BudgetAlert> alerts;
+        Category category;
+        long balance;
+        long sequence;
+        try {
+            Wallet wallet = walletLocked(user);
+            category = wallet.getCategory(categoryName, OperationType.EXPENSE);
+            wallet.setBudget(new Budget(category, limit));
+            storage.checkpointIfNeeded(user);
+            alerts = wallet.pollBudgetAlerts();
+            balance = wallet.getBalance();
+            sequence = events.reserve(1 + alerts.size());
+        } finally {
+            lock.unlock();
+        }
+        sequence = events.publishBudget(sequence, user.getLogin(), category, limit, balance);
+        events.publishAlerts(sequence, user.getLogin(), alerts, balance);
+        evictIfNeeded(user);
+        return alerts;
+    }
+    
+    public void transfer(User sender, String recipientLogin, long amount) throws IOException {
+        User recipient = getUser(recipientLogin);
+        if (recipient == null) {
+            throw new FinanceException("Пользователь с таким логином не найден!");
+        }
+        if (recipient == sender) {
+            throw new FinanceException("Ошибка: нельзя переводить самому себе!");
+        }
+        
+        long started = TRANSFER_TIMER.start();
+        // Полосы блокируются по возрастанию номера, поэтому встречные переводы не взаимоблокируются
+        int senderStripe = stripe(sender.getLogin());
+        int recipientStripe = stripe(recipient.getLogin());
+        ReentrantLock first = locks[Math.min(senderStripe, recipientStripe)];
+        ReentrantLock second = locks[Math.max(senderStripe, recipientStripe)];
+        first.lock();
+        second.lock();
+        long senderBalance;
+        long recipientBalance;
+        long sequence;
+        try {
+            // Баланс проверяется по кошельку отправителя, поэтому он должен быть загружен
+            Wallet senderWallet = walletLocked(sender);
+            if (senderWallet.getBalance() < amount) {
+                TRANSFERS_REJECTED.increment();
+                throw new FinanceException("Ошибка: недостаточно средств для перевода!");
+            }
+            
+            // Перевод записывается в журнал переводов один раз; если процесс упадет до применения,
+            // запись будет применена к обоим кошелькам при их следующей загрузке.
+            // Выгруженный кошелек получателя не загружается: перевод попадет в него при следующей загрузке
+            Transfer transfer = storage.getTransfers().append(sender.getLogin(), recipient.getLogin(),
+                    amount, System.currentTimeMillis());
+            transfer.applyTo(sender.getLogin(), senderWallet, true);
+            senderBalance = senderWallet.getBalance();
+            // Баланс выгруженного получателя неизвестен до загрузки: его событие публикуется без баланса
+            recipientBalance = WalletEvent.UNKNOWN_BALANCE;
+            if (storage.isLoaded(recipient)) {
+                Wallet recipientWallet = recipient.getWallet();
+                transfer.applyTo(recipient.getLogin(), recipientWallet, true);
+                recipientBalance = recipientWallet.getBalance();
+            }
+            sequence = events.reserve(2);
+        } finally {
+            second.unlock();
+            first.unlock();
+        }
+        sequence = events.publishTransfer(sequence, sender.getLogin(), recipient.getLogin(), amount, senderBalance);
+        events.publishTransferReceived(sequence, recipient.getLogin(), sender.getLogin(), amount, recipientBalance);
+        TRANSFER_TIMER.stop(started);
+        evictIfNeeded(sender);
+        
+        if (storage.needsTransferCompaction()) {
+            compactTransfers();
+        }
+    }
+    
+    // Сохраняет снимки всех участников переводов и сжимает журнал переводов.
+    // На это время берутся все полосы блокировок, по порядку, как и при переводе
+    private void compactTransfers() throws IOException {
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        try {
+            // Пока ждали блокировок, журнал мог сжать другой поток
+            if (!storage.needsTransferCompaction()) {
+                return;
+            }
+            // Выгруженные кошельки сохраняются без помещения в кэш
+            for (String login : storage.getTransfers().getParticipants()) {
+                User user = getUser(login);
+                if (user == null) {
+                    user = new User(login);
+                }
+                if (storage.isLoaded(user)) {
+                    storage.save(user);
+                } else {
+                    storage.checkpoint(user);
+                }
+            }
+            storage.getTransfers().truncate();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e.getMessage(), e);
+        } finally {
+            for (int i = locks.length - 1; i >= 0; i--) {
+                locks[i].unlock();
+            }
+        }
+    }
+    
+    public <T> T read(User user, Function<Wallet, T> reader) {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        T result;
+        try {
+            result = reader.apply(walletLocked(user));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            evictIfNeeded(user);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result;
+    }
+    
+    public void withWallet(User user, Consumer<Wallet> action) {
+        read(user, wallet -> {
+            action.accept(wallet);
+            return null;
+        });
+    }
+    
+    
+    // Подписчики потока событий дочитывают опубликованное; вызывается при завершении работы
+    public void close() {
+        events.close();
+    }
+    
+    // Данные уже записаны в журнал; здесь он фиксируется на диске и при необходимости сжимается
+    public void flush(User user) throws IOException {
+        ReentrantLock lock = lockFor(user);
+        lock.lock();
+        try {
+            flushLocked(user);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void flushLocked(User user) throws IOException {
+        long started = FLUSH_TIMER.start();
+        storage.sync(user);
+        storage.checkpointIfNeeded(user);
+        FLUSH_TIMER.stop(started);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+import java.io.File;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Нагрузочный прогон HTTP-сервиса целиком на этой машине: сервер поднимается в том же процессе на свободном порту,
+// все пользователи регистрируются и входят (по сессии на пользователя), затем сгенерированные операции
+// идут по HTTP от имени случайных сессий с ограниченным числом одновременных запросов.
+// Запуск: java HttpLoadTest [users=2000] [requests=200000] [concurrency=256] [seed=42] [dir=...] [параметры WorkloadGenerator]
+public class HttpLoadTest {
+    private static final String PASSWORD = "password";
+    
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Semaphore inFlight;
+    private final int concurrency;
+    private final Map<String, LatencyHistogram> latencies = new LinkedHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    
+    private HttpLoadTest(String baseUrl, int concurrency) {
+        this.baseUrl = baseUrl;
+        this.concurrency = concurrency;
+        this.inFlight = new Semaphore(concurrency);
+        // Свой пул для обработки ответов: без него при малом числе процессоров CompletableFuture
+        // создает поток на каждое завершение, и измеряется уже клиент, а не сервис
+        ExecutorService callbacks = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), runnable -> {
+            Thread thread = new Thread(runnable, "http-load-client");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(callbacks).build();
+    }
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options;
+        try {
+            options = WorkloadGenerator.parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ " + e.getMessage());
+            return;
+        }
+        options.putIfAbsent("users", "2000");
+        long requests = Long.parseLong(options.getOrDefault("requests", "200000"));
+        int concurrency = WorkloadGenerator.intOption(options, "concurrency", 256);
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        File directory = options.containsKey("dir")
+                ? new File(options.get("dir"))
+                : Files.createTempDirectory("finance-http-load").toFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.println("❌ Не удалось создать каталог " + directory);
+            return;
+        }
+        
+        WorkloadGenerator generator = new WorkloadGenerator(options);
+        // Прогон измеряет запросы, а не хеширование паролей, поэтому пароли хешируются одной итерацией
+        FinanceService service = new FinanceService(new UserStorage(directory), new UserRegistry(directory, 1),
+                new WalletCache(WalletCache.DEFAULT_MEMORY_BUDGET));
+        FinanceServer server = new FinanceServer(service, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        server.start();
+        HttpLoadTest test = new HttpLoadTest("http://localhost:" + server.getPort() + "/api/", concurrency);
+        System.out.println("Пользователей: " + generator.getUsers() + ", запросов: " + requests
+                + ", одновременно: " + concurrency + ", каталог: " + directory.getAbsolutePath());
+        
+        try {
+            long started = System.nanoTime();
+            String[] tokens = test.openSessions(generator.getUsers());
+            System.out.printf("Сессий открыто: %d за %.2f с%n", server.getSessions().size(), (System.nanoTime() - started) / 1e9);
+            
+            started = System.nanoTime();
+            test.run(generator, new Random(seed), requests, tokens);
+            test.report(System.nanoTime() - started);
+        } finally {
+            server.stop();
+        }
+    }
+    
+    // Регистрация и вход всех пользователей теми же параллельными запросами; возвращает токены по номеру пользователя
+    private String[] openSessions(int users) throws InterruptedException {
+        String[] tokens = new String[users];
+        for (int i = 0; i < users; i++) {
+            send("register", post("register", null, credentials(i)), null);
+        }
+        awaitAll();
+        for (int i = 0; i < users; i++) {
+            int user = i;
+            send("login", post("login", null, credentials(i)), body -> tokens[user] = token(body));
+        }
+        awaitAll();
+        for (String token : tokens) {
+            if (token == null) {
+                throw new IllegalStateException("Не все пользователи смогли войти");
+            }
+        }
+        return tokens;
+    }
+    
+    private void run(WorkloadGenerator generator, Random random, long requests, String[] tokens)
+            throws InterruptedException {
+        WorkloadGenerator.Step step = new WorkloadGenerator.Step();
+        StringBuilder body = new StringBuilder(128);
+        for (long i = 0; i < requests; i++) {
+            generator.next(random, step);
+            String token = tokens[step.user];
+            body.setLength(0);
+            HttpRequest request;
+            switch (step.type) {
+                case INCOME:
+                case EXPENSE:
+                    body.append("{\"category\":");
+                    Json.appendString(body, step.category);
+                    body.append(",\"amount\":");
+                    MoneyFormat.appendPlain(body, step.amount);
+                    request = post(step.type == WorkloadGenerator.StepType.INCOME ? "income" : "expense", token, body.append('}'));
+                    break;
+                case BUDGET:
+                    body.append("{\"category\":");
+                    Json.appendString(body, step.category);
+                    body.append(",\"limit\":");
+                    MoneyFormat.appendPlain(body, step.amount);
+                    request = post("budget", token, body.append('}'));
+                    break;
+                case TRANSFER:
+                    body.append("{\"recipient\":\"user").append(step.recipient).append("\",\"amount\":");
+                    MoneyFormat.appendPlain(body, step.amount);
+                    request = post("transfer", token, body.append('}'));
+                    break;
+                default:
+                    request = HttpRequest.newBuilder(URI.create(baseUrl + "report"))
+                            .header("Authorization", "Bearer " + token).GET().build();
+            }
+            send(step.type.name(), request, null);
+        }
+        awaitAll();
+    }
+    
+    private static CharSequence credentials(int user) {
+        return "{\"login\":\"user" + user + "\",\"password\":\"" + PASSWORD + "\"}";
+    }
+    
+    private static String token(String body) {
+        Object token = Json.parseObject(body).get("token");
+        return token instanceof String ? (String) token : null;
+    }
+    
+    private HttpRequest post(String endpoint, String token, CharSequence body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + endpoint))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()));
+        if (token != null) {
+            builder.header("Authorization", "Bearer " + token);
+        }
+        return builder.build();
+    }
+    
+    // Асинхронная отправка: число запросов в полете ограничено семафором, задержка считается от отправки до ответа
+    private void send(String name, HttpRequest request, Consumer<String> onSuccess)
+            throws InterruptedException {
+        LatencyHistogram histogram = latencies.computeIfAbsent(name, key -> new LatencyHistogram());
+        inFlight.acquire();
+        long begin = System.nanoTime();
+        client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).whenComplete((response, error) -> {
+            try {
+                histogram.record(System.nanoTime() - begin);
+                if (error != null || response.statusCode() >= 500) {
+                    failed.increment();
+                } else if (response.statusCode() >= 400) {
+                    // Отказ по бизнес-правилу (например, недостаточно средств) - тоже ответ сервиса
+                    rejected.increment();
+                } else if (onSuccess != null) {
+                    onSuccess.accept(response.body());
+                }
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+    
+    private void awaitAll() throws InterruptedException {
+        inFlight.acquire(concurrency);
+        inFlight.release(concurrency);
+    }
+    
+    private void report(long elapsedNanos) {
+        long total = 0;
+        System.out.println();
+        System.out.printf("%-10s %12s %12s %12s %12s %12s%n", "Запрос", "Количество", "зап/с", "p50, мкс", "p99, мкс", "max, мкс");
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            if (entry.getKey().equals("register") || entry.getKey().equals("login")) {
+                System.out.printf("%-10s %12d %12s %12.1f %12.1f %12.1f%n", entry.getKey(), histogram.getCount(), "-",
+                        histogram.percentileNanos(50) / 1000.0,
+                        histogram.percentileNanos(99) / 1000.0,
+                        histogram.percentileNanos(100) / 1000.0);
+                continue;
+            }
+            total += histogram.getCount();
+            System.out.printf("%-10s %12d %12.0f %12.1f %12.1f %12.1f%n",
+                    entry.getKey(),
+                    histogram.getCount(),
+                    histogram.getCount() * 1e9 / elapsedNanos,
+                    histogram.percentileNanos(50) / 1000.0,
+                    histogram.percentileNanos(99) / 1000.0,
+                    histogram.percentileNanos(100) / 1000.0);
+        }
+        System.out.printf("%nВсего: %d запросов за %.2f с, %.0f зап/с, отказов: %d, ошибок: %d%n",
+                total, elapsedNanos / 1e9, total * 1e9 / elapsedNanos, rejected.sum(), failed.sum());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,59 @@
+// Проверки пользовательского ввода, общие для консоли и HTTP-сервиса; нарушение - FinanceException с текстом для пользователя
+public final class InputRules {
+    public static final int MIN_LOGIN_LENGTH = 3;
+    public static final int MIN_PASSWORD_LENGTH = 4;
+    // Имя категории хранится в каждой записи журнала; длинная строка не поместилась бы в запись
+    public static final int MAX_CATEGORY_LENGTH = 100;
+    
+    private InputRules() {
+    }
+    
+    public static void checkLogin(String login) {
+        if (login == null || login.isEmpty()) {
+            throw new FinanceException("Ошибка: логин не может быть пустым!");
+        }
+        if (login.length() < MIN_LOGIN_LENGTH) {
+            throw new FinanceException("Ошибка: логин должен содержать минимум " + MIN_LOGIN_LENGTH + " символа!");
+        }
+    }
+    
+    public static void checkPassword(String password) {
+        if (password == null || password.isEmpty()) {
+            throw new FinanceException("Ошибка: пароль не может быть пустым!");
+        }
+        if (password.length() < MIN_PASSWORD_LENGTH) {
+            throw new FinanceException("Ошибка: пароль должен содержать минимум " + MIN_PASSWORD_LENGTH + " символа!");
+        }
+    }
+    
+    public static void checkCategory(String categoryName) {
+        if (categoryName == null || categoryName.isEmpty()) {
+            throw new FinanceException("Ошибка: название категории не может быть пустым!");
+        }
+        if (categoryName.length() > MAX_CATEGORY_LENGTH) {
+            throw new FinanceException("Ошибка: название категории длиннее " + MAX_CATEGORY_LENGTH + " символов!");
+        }
+    }
+    
+    // Сумма в копейках; operationType - название суммы в родительном падеже ("дохода", "перевода")
+    public static long parseAmount(String amountInput, String operationType) {
+        if (amountInput == null || amountInput.isEmpty()) {
+            throw new FinanceException("Ошибка: сумма " + operationType + " не может быть пустой!");
+        }
+        
+        long amount;
+        try {
+            amount = Money.parse(amountInput);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new FinanceException("Ошибка: введите корректное число для суммы!");
+        }
+        
+        if (amount <= 0) {
+            throw new FinanceException("Ошибка: сумма должна быть положительной!");
+        }
+        if (amount > Money.MAX_AMOUNT) {
+            throw new FinanceException("Ошибка: сумма слишком большая!");
+        }
+        return amount;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,222 @@
+import java.math.BigDecimal;
+import java.util.*;
+
+// Минимальный JSON без внешних библиотек: разбор тел запросов HTTP-сервиса и экранирование строк при выводе.
+// Объект разбирается в LinkedHashMap, массив - в ArrayList, число - в BigDecimal (суммы не проходят через double)
+public final class Json {
+    // Тела запросов плоские; предел вложенности не дает телу вида [[[[... исчерпать стек рекурсивного разбора
+    private static final int MAX_DEPTH = 32;
+    
+    private final String text;
+    private int position;
+    private int depth;
+    
+    private Json(String text) {
+        this.text = text;
+    }
+    
+    // Тело запроса должно быть объектом; пустое тело - пустой объект
+    public static Map<String, Object> parseObject(String text) {
+        if (text.trim().isEmpty()) {
+            return new LinkedHashMap<>();
+        }
+        Json parser = new Json(text);
+        Object value = parser.readValue();
+        parser.skipWhitespace();
+        if (parser.position != text.length()) {
+            throw parser.error("лишние символы после значения");
+        }
+        if (!(value instanceof Map)) {
+            throw new FinanceException("Ошибка: тело запроса должно быть JSON-объектом!");
+        }
+        @SuppressWarnings("unchecked")
+        Map<String, Object> object = (Map<String, Object>) value;
+        return object;
+    }
+    
+    public static void appendString(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else if (c == '\r') {
+                out.append("\\r");
+            } else if (c == '\t') {
+                out.append("\\t");
+            } else if (c < 0x20) {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+    
+    private Object readValue() {
+        skipWhitespace();
+        if (position >= text.length()) {
+            throw error("неожиданный конец");
+        }
+        char c = text.charAt(position);
+        switch (c) {
+            case '{':
+                enter();
+                Map<String, Object> object = readObject();
+                depth--;
+                return object;
+            case '[':
+                enter();
+                List<Object> array = readArray();
+                depth--;
+                return array;
+            case '"':
+                return readString();
+            case 't':
+                return readLiteral("true", Boolean.TRUE);
+            case 'f':
+                return readLiteral("false", Boolean.FALSE);
+            case 'n':
+                return readLiteral("null", null);
+            default:
+                return readNumber();
+        }
+    }
+    
+    private void enter() {
+        if (++depth > MAX_DEPTH) {
+            throw error("слишком глубокая вложенность");
+        }
+    }
+    
+    private Map<String, Object> readObject() {
+        Map<String, Object> object = new LinkedHashMap<>();
+        position++;
+        skipWhitespace();
+        if (peek() == '}') {
+            position++;
+            return object;
+        }
+        while (true) {
+            skipWhitespace();
+            if (peek() != '"') {
+                throw error("ожидалось имя поля");
+            }
+            String name = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(name, readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect('}');
+                return object;
+            }
+        }
+    }
+    
+    private List<Object> readArray() {
+        List<Object> array = new ArrayList<>();
+        position++;
+        skipWhitespace();
+        if (peek() == ']') {
+            position++;
+            return array;
+        }
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+            if (peek() == ',') {
+                position++;
+            } else {
+                expect(']');
+                return array;
+            }
+        }
+    }
+    
+    private String readString() {
+        position++;
+        StringBuilder value = new StringBuilder();
+        while (position < text.length()) {
+            char c = text.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+            if (position >= text.length()) {
+                break;
+            }
+            char escape = text.charAt(position++);
+            switch (escape) {
+                case 'b': value.append('\b'); break;
+                case 'f': value.append('\f'); break;
+                case 'n': value.append('\n'); break;
+                case 'r': value.append('\r'); break;
+                case 't': value.append('\t'); break;
+                case 'u':
+                    if (position + 4 > text.length()) {
+                        throw error("неполная последовательность \\u");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("неверная последовательность \\u");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escape);
+            }
+        }
+        throw error("незакрытая строка");
+    }
+    
+    private BigDecimal readNumber() {
+        int start = position;
+        while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+            position++;
+        }
+        try {
+            return new BigDecimal(text.substring(start, position));
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error("ожидалось значение");
+        }
+    }
+    
+    private Object readLiteral(String literal, Object value) {
+        if (!text.startsWith(literal, position)) {
+            throw error("ожидалось значение");
+        }
+        position += literal.length();
+        return value;
+    }
+    
+    private void skipWhitespace() {
+        while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+            position++;
+        }
+    }
+    
+    private char peek() {
+        return position < text.length() ? text.charAt(position) : '\0';
+    }
+    
+    private void expect(char c) {
+        if (peek() != c) {
+            throw error("ожидался символ '" + c + "'");
+        }
+        position++;
+    }
+    
+    private FinanceException error(String reason) {
+        return new FinanceException("Ошибка: некорректный JSON (" + reason + ", позиция " + position + ")");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,146 @@
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+// Нагрузочный прогон ядра без консоли: сгенерированные операции выполняются через FinanceService в нескольких потоках.
+// Запуск: java LoadTest [ops=1000000] [threads=4] [seed=42] [dir=...] [cacheBytes=...] [subscribers=0] [параметры WorkloadGenerator]
+public class LoadTest {
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options;
+        try {
+            options = WorkloadGenerator.parseOptions(args);
+        } catch (IllegalArgumentException e) {
+            System.out.println("❌ " + e.getMessage());
+            return;
+        }
+        
+        long operations = Long.parseLong(options.getOrDefault("ops", "1000000"));
+        int threads = WorkloadGenerator.intOption(options, "threads", 4);
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        File directory = options.containsKey("dir")
+                ? new File(options.get("dir"))
+                : Files.createTempDirectory("finance-load").toFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            System.out.println("❌ Не удалось создать каталог " + directory);
+            return;
+        }
+        
+        WorkloadGenerator generator = new WorkloadGenerator(options);
+        long cacheBytes = Long.parseLong(options.getOrDefault("cacheBytes", String.valueOf(WalletCache.DEFAULT_MEMORY_BUDGET)));
+        // Прогон измеряет операции, а не вход, поэтому пароли нагрузочных пользователей хешируются одной итерацией
+        FinanceService service = new FinanceService(new UserStorage(directory), new UserRegistry(directory, 1),
+                new WalletCache(cacheBytes));
+        // Дополнительные подписчики потока событий: задержка записи не должна расти с их числом
+        int subscribers = WorkloadGenerator.intOption(options, "subscribers", 0);
+        LongAdder delivered = new LongAdder();
+        for (int i = 0; i < subscribers; i++) {
+            service.getEvents().subscribe("load-" + i, event -> delivered.increment());
+        }
+        User[] users = new User[generator.getUsers()];
+        for (int i = 0; i < users.length; i++) {
+            String login = "user" + i;
+            service.register(login, "password");
+            users[i] = service.getUser(login);
+            service.loadWallet(users[i]);
+        }
+        
+        Map<WorkloadGenerator.StepType, LatencyHistogram> latencies = new EnumMap<>(WorkloadGenerator.StepType.class);
+        for (WorkloadGenerator.StepType type : WorkloadGenerator.StepType.values()) {
+            latencies.put(type, new LatencyHistogram());
+        }
+        LongAdder rejected = new LongAdder();
+        
+        System.out.println("Операций: " + operations + ", потоков: " + threads + ", пользователей: " + users.length +
+                ", каталог: " + directory.getAbsolutePath());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            long share = operations / threads + (t < operations % threads ? 1 : 0);
+            // У каждого потока своя последовательность, поэтому прогон воспроизводим при том же seed
+            Random random = new Random(seed + t);
+            futures.add(executor.submit(() -> {
+                run(service, users, generator, random, share, latencies, rejected);
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - started;
+        executor.shutdown();
+        
+        for (User user : users) {
+            service.flush(user);
+        }
+        service.close();
+        report(latencies, elapsed, rejected.sum());
+        if (subscribers > 0) {
+            System.out.printf("Подписчиков событий: %d, доставлено событий: %d%n", subscribers, delivered.sum());
+        }
+        
+        WalletCache cache = service.getCache();
+        System.out.printf("Кэш кошельков: в памяти %d (%d КБ из %d КБ), попаданий %d, промахов %d, выгрузок %d%n",
+                cache.getResidentCount(), cache.getResidentBytes() >> 10, cache.getMemoryBudget() >> 10,
+                cache.getHits(), cache.getMisses(), cache.getEvictions());
+    }
+    
+    private static void run(FinanceService service, User[] users, WorkloadGenerator generator, Random random,
+                            long operations, Map<WorkloadGenerator.StepType, LatencyHistogram> latencies,
+                            LongAdder rejected) throws IOException {
+        WorkloadGenerator.Step step = new WorkloadGenerator.Step();
+        for (long i = 0; i < operations; i++) {
+            generator.next(random, step);
+            User user = users[step.user];
+            long begin = System.nanoTime();
+            try {
+                switch (step.type) {
+                    case INCOME:
+                        service.addOperation(user, step.category, OperationType.INCOME, step.amount);
+                        break;
+                    case EXPENSE:
+                        service.addOperation(user, step.category, OperationType.EXPENSE, step.amount);
+                        break;
+                    case BUDGET:
+                        service.setBudget(user, step.category, step.amount);
+                        break;
+                    case TRANSFER:
+                        service.transfer(user, users[step.recipient].getLogin(), step.amount);
+                        break;
+                    default:
+                        service.read(user, wallet -> wallet.getExpensesByCategory().size() + wallet.getBalance());
+                }
+            } catch (FinanceException e) {
+                // Отказ по бизнес-правилу (например, недостаточно средств) - тоже результат, его задержка учитывается
+                rejected.increment();
+            }
+            latencies.get(step.type).record(System.nanoTime() - begin);
+        }
+    }
+    
+    private static void report(Map<WorkloadGenerator.StepType, LatencyHistogram> latencies, long elapsedNanos,
+                               long rejected) {
+        long total = 0;
+        System.out.println();
+        System.out.printf("%-10s %12s %12s %12s %12s %12s%n", "Операция", "Количество", "оп/с", "p50, мкс", "p99, мкс", "max, мкс");
+        for (Map.Entry<WorkloadGenerator.StepType, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            total += histogram.getCount();
+            if (histogram.getCount() == 0) {
+                continue;
+            }
+            System.out.printf("%-10s %12d %12.0f %12.1f %12.1f %12.1f%n",
+                    entry.getKey(),
+                    histogram.getCount(),
+                    histogram.getCount() * 1e9 / elapsedNanos,
+                    histogram.percentileNanos(50) / 1000.0,
+                    histogram.percentileNanos(99) / 1000.0,
+                    histogram.percentileNanos(100) / 1000.0);
+        }
+        System.out.printf("%nВсего: %d операций за %.2f с, %.0f оп/с, отказов: %d%n",
+                total, elapsedNanos / 1e9, total * 1e9 / elapsedNanos, rejected);
+    }
+}
\ No newline at end of file
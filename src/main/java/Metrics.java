@@ -0,0 +1,191 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Метрики горячих путей: счетчики, показатели и таймеры с гистограммой задержек.
+// Выключаются -Dfinance.metrics=false; флаг - константа, поэтому в выключенном режиме JIT убирает замеры целиком
+public final class Metrics {
+    public static final boolean ENABLED = !"false".equals(System.getProperty("finance.metrics"));
+    
+    private static final Map<String, Metric> METRICS = new ConcurrentSkipListMap<>();
+    
+    private Metrics() {
+    }
+    
+    private abstract static class Metric {
+        final String name;
+        final String help;
+        
+        Metric(String name, String help) {
+            this.name = name;
+            this.help = help;
+        }
+        
+        abstract void writePrometheus(StringBuilder out);
+        
+        void writeHeader(StringBuilder out, String type) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        }
+    }
+    
+    public static final class Counter extends Metric {
+        private final LongAdder value = new LongAdder();
+        
+        Counter(String name, String help) {
+            super(name, help);
+        }
+        
+        public void increment() {
+            if (ENABLED) {
+                value.increment();
+            }
+        }
+        
+        public void add(long amount) {
+            if (ENABLED) {
+                value.add(amount);
+            }
+        }
+        
+        public long get() { return value.sum(); }
+        
+        @Override
+        void writePrometheus(StringBuilder out) {
+            writeHeader(out, "counter");
+            out.append(name).append(' ').append(get()).append('\n');
+        }
+    }
+    
+    public static final class Gauge extends Metric {
+        private final LongSupplier value;
+        
+        Gauge(String name, String help, LongSupplier value) {
+            super(name, help);
+            this.value = value;
+        }
+        
+        public long get() { return value.getAsLong(); }
+        
+        @Override
+        void writePrometheus(StringBuilder out) {
+            writeHeader(out, "gauge");
+            out.append(name).append(' ').append(get()).append('\n');
+        }
+    }
+    
+    // Использование: long start = TIMER.start(); ...; TIMER.stop(start);
+    public static final class Timer extends Metric {
+        private static final double[] QUANTILES = {0.5, 0.9, 0.99, 1.0};
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        
+        Timer(String name, String help) {
+            super(name, help);
+        }
+        
+        public long start() {
+            return ENABLED ? System.nanoTime() : 0;
+        }
+        
+        public void stop(long start) {
+            if (ENABLED) {
+                histogram.record(System.nanoTime() - start);
+            }
+        }
+        
+        public LatencyHistogram getHistogram() { return histogram; }
+        
+        // Формат summary: квантили и сумма в секундах
+        @Override
+        void writePrometheus(StringBuilder out) {
+            writeHeader(out, "summary");
+            for (double quantile : QUANTILES) {
+                out.append(name).append("{quantile=\"").append(quantile).append("\"} ")
+                        .append(histogram.percentileNanos(quantile * 100) / 1e9).append('\n');
+            }
+            out.append(name).append("_sum ").append(histogram.getTotalNanos() / 1e9).append('\n');
+            out.append(name).append("_count ").append(histogram.getCount()).append('\n');
+        }
+    }
+    
+    // Повторная регистрация под тем же именем возвращает уже существующую метрику
+    public static Counter counter(String name, String help) {
+        return (Counter) METRICS.computeIfAbsent(name, key -> new Counter(name, help));
+    }
+    
+    public static Timer timer(String name, String help) {
+        return (Timer) METRICS.computeIfAbsent(name, key -> new Timer(name, help));
+    }
+    
+    // Показатель вычисляется при выводе; новая регистрация заменяет прежний источник
+    public static void gauge(String name, String help, LongSupplier value) {
+        METRICS.put(name, new Gauge(name, help, value));
+    }
+    
+    // Текстовый формат Prometheus
+    public static String toPrometheusText() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Metric metric : METRICS.values()) {
+            metric.writePrometheus(out);
+        }
+        return out.toString();
+    }
+    
+    // Таблица для консоли: таймеры с перцентилями в микросекундах, затем счетчики и показатели
+    public static String toTable() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append(String.format("%-42s %10s %10s %10s %10s %10s%n", "Таймер", "Количество", "p50, мкс", "p99, мкс", "max, мкс", "всего, мс"));
+        for (Metric metric : METRICS.values()) {
+            if (metric instanceof Timer) {
+                LatencyHistogram histogram = ((Timer) metric).getHistogram();
+                out.append(String.format("%-42s %10d %10.1f %10.1f %10.1f %10.1f%n", metric.name,
+                        histogram.getCount(),
+                        histogram.percentileNanos(50) / 1000.0,
+                        histogram.percentileNanos(99) / 1000.0,
+                        histogram.percentileNanos(100) / 1000.0,
+                        histogram.getTotalNanos() / 1e6));
+            }
+        }
+        out.append(String.format("%n%-42s %10s%n", "Счетчик", "Значение"));
+        for (Metric metric : METRICS.values()) {
+            if (metric instanceof Counter) {
+                out.append(String.format("%-42s %10d%n", metric.name, ((Counter) metric).get()));
+            } else if (metric instanceof Gauge) {
+                out.append(String.format("%-42s %10d%n", metric.name, ((Gauge) metric).get()));
+            }
+        }
+        return out.toString();
+    }
+    
+    // Файл подменяется атомарно, поэтому сборщик метрик никогда не прочитает его наполовину записанным
+    public static void dump(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        Files.write(tmp.toPath(), toPrometheusText().getBytes(StandardCharsets.UTF_8));
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+    
+    // Периодическая выгрузка в фоновом потоке-демоне; ошибки записи не прерывают работу приложения
+    public static ScheduledExecutorService startPeriodicDump(File file, long periodSeconds) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                dump(file);
+            } catch (IOException e) {
+                System.err.println("⚠️ Не удалось записать метрики в " + file + ": " + e.getMessage());
+            }
+        }, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        return executor;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,37 @@
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+// Денежные суммы хранятся в long в копейках: сложение точное и не накапливает ошибку округления
+public final class Money {
+    public static final int SCALE = 2;
+    // Наибольшая допустимая сумма операции: миллиард, в копейках
+    public static final long MAX_AMOUNT = 100_000_000_000L;
+    private static final long MINOR_UNITS = 100;
+    
+    private Money() {
+    }
+    
+    // Только для старых данных, где суммы хранились в double
+    public static long fromDouble(double amount) {
+        return Math.round(amount * MINOR_UNITS);
+    }
+    
+    public static double toDouble(long minorUnits) {
+        return (double) minorUnits / MINOR_UNITS;
+    }
+    
+    public static BigDecimal toDecimal(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, SCALE);
+    }
+    
+    // Разбирает введенную сумму без промежуточного double; лишние знаки после запятой округляются.
+    // Числа с огромным порядком в любую сторону (1e999999999, 1e-99999999) отклоняются до масштабирования:
+    // оно заняло бы всю память или минуты процессорного времени
+    public static long parse(String text) {
+        BigDecimal value = new BigDecimal(text);
+        if (value.precision() - value.scale() > 19 || value.scale() > SCALE + 19) {
+            throw new ArithmeticException("Сумма вне допустимого диапазона: " + text);
+        }
+        return value.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
\ No newline at end of file
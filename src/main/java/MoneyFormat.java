@@ -0,0 +1,93 @@
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+
+// Быстрое форматирование сумм в копейках. Результат совпадает с NumberFormat консоли
+// (группировка разрядов, от одного до двух знаков после запятой), но без BigDecimal и без разбора шаблона на каждый вызов
+public final class MoneyFormat {
+    private final NumberFormat fallback;
+    private final boolean fast;
+    private final char groupingSeparator;
+    private final char decimalSeparator;
+    private final char minusSign;
+    
+    public MoneyFormat(NumberFormat format) {
+        this.fallback = format;
+        boolean fast = false;
+        char grouping = ',';
+        char decimal = '.';
+        char minus = '-';
+        // Быстрый путь только для обычной десятичной записи; остальные локали форматирует сам NumberFormat
+        if (format instanceof DecimalFormat) {
+            DecimalFormat decimalFormat = (DecimalFormat) format;
+            DecimalFormatSymbols symbols = decimalFormat.getDecimalFormatSymbols();
+            fast = decimalFormat.isGroupingUsed()
+                    && decimalFormat.getGroupingSize() == 3
+                    && decimalFormat.getMinimumFractionDigits() == 1
+                    && decimalFormat.getMaximumFractionDigits() == 2
+                    && symbols.getZeroDigit() == '0'
+                    && decimalFormat.getNegativePrefix().equals(String.valueOf(symbols.getMinusSign()))
+                    && decimalFormat.getPositivePrefix().isEmpty()
+                    && decimalFormat.getPositiveSuffix().isEmpty()
+                    && decimalFormat.getNegativeSuffix().isEmpty();
+            grouping = symbols.getGroupingSeparator();
+            decimal = symbols.getDecimalSeparator();
+            minus = symbols.getMinusSign();
+        }
+        this.fast = fast;
+        this.groupingSeparator = grouping;
+        this.decimalSeparator = decimal;
+        this.minusSign = minus;
+    }
+    
+    // В отличие от NumberFormat, экземпляр потокобезопасен: один формат может обслуживать все запросы сервиса
+    public String format(long minorUnits) {
+        StringBuilder out = new StringBuilder(24);
+        appendTo(out, minorUnits);
+        return out.toString();
+    }
+    
+    public void appendTo(StringBuilder out, long minorUnits) {
+        if (!fast || minorUnits == Long.MIN_VALUE) {
+            synchronized (fallback) {
+                out.append(fallback.format(Money.toDecimal(minorUnits)));
+            }
+            return;
+        }
+        if (minorUnits < 0) {
+            out.append(minusSign);
+            minorUnits = -minorUnits;
+        }
+        appendGrouped(out, minorUnits / 100);
+        int fraction = (int) (minorUnits % 100);
+        out.append(decimalSeparator).append((char) ('0' + fraction / 10));
+        if (fraction % 10 != 0) {
+            out.append((char) ('0' + fraction % 10));
+        }
+    }
+    
+    private void appendGrouped(StringBuilder out, long value) {
+        if (value < 1000) {
+            out.append(value);
+            return;
+        }
+        appendGrouped(out, value / 1000);
+        int group = (int) (value % 1000);
+        out.append(groupingSeparator)
+                .append((char) ('0' + group / 100))
+                .append((char) ('0' + group / 10 % 10))
+                .append((char) ('0' + group % 10));
+    }
+    
+    // Сумма для машинных форматов (CSV, JSON): точка, ровно два знака, без группировки
+    public static void appendPlain(StringBuilder out, long minorUnits) {
+        if (minorUnits < 0) {
+            out.append('-');
+        }
+        long units = Math.abs(minorUnits / 100);
+        int fraction = (int) Math.abs(minorUnits % 100);
+        out.append(units).append('.')
+                .append((char) ('0' + fraction / 10))
+                .append((char) ('0' + fraction % 10));
+    }
+}
\ No newline at end of file
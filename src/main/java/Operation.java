@@ -1,24 +1,55 @@
-import java.io.Serializable;
+import java.io.*;
 import java.util.Date;
 
 public class Operation implements Serializable {
-    private Category category;
-    private double amount;
-    private Date date;
+    private static final long serialVersionUID = -5175284216445647627L;
     
-    public Operation(Category category, double amount) {
+    // В потоке сериализации сумма остается double, поэтому старые файлы .dat читаются
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("category", Category.class),
+        new ObjectStreamField("amount", double.class),
+        new ObjectStreamField("date", Date.class)
+    };
+    
+    private transient Category category;
+    // Сумма в копейках
+    private transient long amount;
+    private transient Date date;
+    
+    public Operation(Category category, long amount) {
         this.category = category;
         this.amount = amount;
         this.date = new Date();
     }
     
+    public Operation(Category category, long amount, Date date) {
+        this.category = category;
+        this.amount = amount;
+        this.date = date;
+    }
+    
     public Category getCategory() { return category; }
-    public double getAmount() { return amount; }
+    public long getAmount() { return amount; }
     public Date getDate() { return date; }
     
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("category", category);
+        fields.put("amount", Money.toDouble(amount));
+        fields.put("date", date);
+        out.writeFields();
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        category = (Category) fields.get("category", null);
+        amount = Money.fromDouble(fields.get("amount", 0.0));
+        date = (Date) fields.get("date", null);
+    }
+    
     @Override
     public String toString() {
-        return String.format("Operation{category=%s, amount=%.2f, date=%s}", 
-                           category.getName(), amount, date);
+        return String.format("Operation{category=%s, amount=%s, date=%s}", 
+                           category.getName(), Money.toDecimal(amount), date);
     }
 }
\ No newline at end of file
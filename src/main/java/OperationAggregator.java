@@ -0,0 +1,94 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Агрегация операций по категориям. На больших объемах хранилище делится на куски,
+// которые считаются в пуле fork-join, каждый в свои частичные итоги; общих структур у частей нет
+public class OperationAggregator {
+    // Начиная с этого числа операций агрегация выполняется параллельно
+    public static final int PARALLEL_THRESHOLD = Integer.getInteger("finance.parallelThreshold", 1 << 17);
+    private static final int CHUNK_SIZE = 1 << 14;
+    
+    private static final Metrics.Timer AGGREGATE_TIMER = Metrics.timer("finance_aggregate_seconds",
+            "Агрегация операций по категориям с обходом хранилища");
+    private static final Metrics.Counter PARALLEL_AGGREGATIONS = Metrics.counter("finance_aggregate_parallel_total",
+            "Агрегации, выполненные в пуле fork-join");
+    
+    private final OperationStore store;
+    // Номер слота итогов по номеру категории; -1 - категория не нужна. Без таблицы слот равен номеру категории
+    private final int[] slotById;
+    private final int slots;
+    private long minAmount = Long.MIN_VALUE;
+    private long maxAmount = Long.MAX_VALUE;
+    
+    public OperationAggregator(OperationStore store, int[] slotById, int slots) {
+        this.store = store;
+        this.slotById = slotById;
+        this.slots = slots;
+    }
+    
+    public OperationAggregator amountBetween(long minAmount, long maxAmount) {
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        return this;
+    }
+    
+    // positions - позиции операций в хранилище (например, в порядке времени); null - позиции подряд.
+    // Обрабатываются элементы с номерами [start, end)
+    public CategoryTotals aggregate(int[] positions, int start, int end) {
+        long started = AGGREGATE_TIMER.start();
+        CategoryTotals totals;
+        if (end - start >= PARALLEL_THRESHOLD) {
+            PARALLEL_AGGREGATIONS.increment();
+            totals = aggregateParallel(ForkJoinPool.commonPool(), positions, start, end);
+        } else {
+            totals = aggregateSequential(positions, start, end);
+        }
+        AGGREGATE_TIMER.stop(started);
+        return totals;
+    }
+    
+    public CategoryTotals aggregateParallel(ForkJoinPool pool, int[] positions, int start, int end) {
+        return pool.invoke(new Chunk(positions, start, end));
+    }
+    
+    public CategoryTotals aggregateSequential(int[] positions, int start, int end) {
+        CategoryTotals totals = new CategoryTotals(slots);
+        for (int k = start; k < end; k++) {
+            int position = positions == null ? k : positions[k];
+            int categoryId = store.getCategoryId(position);
+            int slot = slotById == null ? categoryId : slotById[categoryId];
+            long amount = store.getAmount(position);
+            if (slot >= 0 && amount >= minAmount && amount <= maxAmount) {
+                totals.add(slot, amount);
+            }
+        }
+        return totals;
+    }
+    
+    private class Chunk extends RecursiveTask<CategoryTotals> {
+        private static final long serialVersionUID = 1L;
+        
+        private final int[] positions;
+        private final int start;
+        private final int end;
+        
+        Chunk(int[] positions, int start, int end) {
+            this.positions = positions;
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected CategoryTotals compute() {
+            if (end - start <= CHUNK_SIZE) {
+                return aggregateSequential(positions, start, end);
+            }
+            int middle = (start + end) >>> 1;
+            Chunk left = new Chunk(positions, start, middle);
+            left.fork();
+            CategoryTotals totals = new Chunk(positions, middle, end).compute();
+            totals.merge(left.join());
+            return totals;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,33 @@
+import java.util.Arrays;
+
+// Пачка операций для массового добавления: параллельные массивы без объектов Operation, переиспользуется после clear()
+public class OperationBatch {
+    private Category[] categories = new Category[64];
+    private long[] amounts = new long[64];
+    private long[] timestamps = new long[64];
+    private int size;
+    
+    public void add(Category category, long amount, long timestamp) {
+        if (size == amounts.length) {
+            int capacity = size * 2;
+            categories = Arrays.copyOf(categories, capacity);
+            amounts = Arrays.copyOf(amounts, capacity);
+            timestamps = Arrays.copyOf(timestamps, capacity);
+        }
+        categories[size] = category;
+        amounts[size] = amount;
+        timestamps[size] = timestamp;
+        size++;
+    }
+    
+    public int size() { return size; }
+    public Category getCategory(int index) { return categories[index]; }
+    public long getAmount(int index) { return amounts[index]; }
+    public long getTimestamp(int index) { return timestamps[index]; }
+    
+    public void clear() {
+        // Ссылки на категории обнуляются, чтобы пачка не удерживала их после импорта
+        Arrays.fill(categories, 0, size, null);
+        size = 0;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,173 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.time.ZoneId;
+import java.util.Map;
+
+// Потоковая выгрузка истории и отчета в CSV или JSON. Операции читаются прямо из хранилища кошелька,
+// текст собирается страницами в переиспользуемом буфере и уходит в Writer; список операций не создается.
+// CSV выгрузки истории читается обратно CsvImporter
+public class OperationExporter {
+    public enum Format { CSV, JSON }
+    
+    private final Writer out;
+    private final Format format;
+    private final DayFormatter days;
+    // Буфер текста: append-методы только форматируют и вызываются под блокировкой кошелька,
+    // запись в Writer идет отдельно через writePage, уже без блокировки
+    private final StringBuilder line = new StringBuilder(128);
+    private int count;
+    
+    public OperationExporter(Writer out, Format format, ZoneId zone) {
+        this.out = out;
+        this.format = format;
+        this.days = new DayFormatter(zone);
+    }
+    
+    public void beginHistory() {
+        count = 0;
+        line.append(format == Format.CSV ? "date,type,category,amount\n" : "[");
+    }
+    
+    // Добавляет в буфер страницу операций и возвращает курсор следующей страницы или -1 в конце
+    public int appendHistoryPage(Wallet wallet, int from, int limit) {
+        return wallet.forEachOperation(from, limit, (category, amount, timestamp) -> {
+            if (format == Format.CSV) {
+                appendTimestamp(timestamp);
+                line.append(',').append(category.getType() == OperationType.INCOME ? "income" : "expense").append(',');
+                appendCsv(category.getName());
+                line.append(',');
+                MoneyFormat.appendPlain(line, amount);
+                line.append('\n');
+            } else {
+                line.append(count == 0 ? "\n  " : ",\n  ").append("{\"date\":\"");
+                appendTimestamp(timestamp);
+                line.append("\",\"type\":\"").append(category.getType() == OperationType.INCOME ? "income" : "expense")
+                        .append("\",\"category\":");
+                appendJson(category.getName());
+                line.append(",\"amount\":");
+                MoneyFormat.appendPlain(line, amount);
+                line.append('}');
+            }
+            count++;
+        });
+    }
+    
+    // Возвращает число выгруженных операций
+    public int endHistory() throws IOException {
+        if (format == Format.JSON) {
+            line.append(count == 0 ? "]\n" : "\n]\n");
+        }
+        writePage();
+        out.flush();
+        return count;
+    }
+    
+    public void appendReport(Wallet wallet) {
+        Map<Category, Long> income = wallet.getIncomeByCategory();
+        Map<Category, Long> expenses = wallet.getExpensesByCategory();
+        if (format == Format.CSV) {
+            line.append("section,category,amount,limit\n");
+            appendCsvTotals("income", income);
+            appendCsvTotals("expense", expenses);
+            for (Map.Entry<Category, Budget> entry : wallet.getBudgets().entrySet()) {
+                line.append("budget,");
+                appendCsv(entry.getKey().getName());
+                line.append(',');
+                MoneyFormat.appendPlain(line, expenses.getOrDefault(entry.getKey(), 0L));
+                line.append(',');
+                MoneyFormat.appendPlain(line, entry.getValue().getLimit());
+                line.append('\n');
+            }
+            line.append("total,income,");
+            MoneyFormat.appendPlain(line, wallet.getTotalIncome());
+            line.append(",\ntotal,expense,");
+            MoneyFormat.appendPlain(line, wallet.getTotalExpenses());
+            line.append(",\ntotal,balance,");
+            MoneyFormat.appendPlain(line, wallet.getBalance());
+            line.append(",\n");
+        } else {
+            line.append("{\n  \"totalIncome\": ");
+            MoneyFormat.appendPlain(line, wallet.getTotalIncome());
+            line.append(",\n  \"totalExpenses\": ");
+            MoneyFormat.appendPlain(line, wallet.getTotalExpenses());
+            line.append(",\n  \"balance\": ");
+            MoneyFormat.appendPlain(line, wallet.getBalance());
+            line.append(",\n  \"income\": ");
+            appendJsonTotals(income);
+            line.append(",\n  \"expenses\": ");
+            appendJsonTotals(expenses);
+            line.append(",\n  \"budgets\": [");
+            boolean first = true;
+            for (Map.Entry<Category, Budget> entry : wallet.getBudgets().entrySet()) {
+                line.append(first ? "\n    {\"category\":" : ",\n    {\"category\":");
+                appendJson(entry.getKey().getName());
+                line.append(",\"limit\":");
+                MoneyFormat.appendPlain(line, entry.getValue().getLimit());
+                line.append(",\"spent\":");
+                MoneyFormat.appendPlain(line, expenses.getOrDefault(entry.getKey(), 0L));
+                line.append('}');
+                first = false;
+            }
+            line.append(first ? "]\n}\n" : "\n  ]\n}\n");
+        }
+    }
+    
+    // Передает собранное в Writer и очищает буфер
+    public void writePage() throws IOException {
+        out.append(line);
+        line.setLength(0);
+    }
+    
+    private void appendCsvTotals(String section, Map<Category, Long> totals) {
+        for (Map.Entry<Category, Long> entry : totals.entrySet()) {
+            line.append(section).append(',');
+            appendCsv(entry.getKey().getName());
+            line.append(',');
+            MoneyFormat.appendPlain(line, entry.getValue());
+            line.append(",\n");
+        }
+    }
+    
+    private void appendJsonTotals(Map<Category, Long> totals) {
+        line.append('{');
+        boolean first = true;
+        for (Map.Entry<Category, Long> entry : totals.entrySet()) {
+            line.append(first ? "\n    " : ",\n    ");
+            appendJson(entry.getKey().getName());
+            line.append(": ");
+            MoneyFormat.appendPlain(line, entry.getValue());
+            first = false;
+        }
+        line.append(first ? "}" : "\n  }");
+    }
+    
+    // yyyy-MM-dd HH:mm:ss в часовом поясе выгрузки
+    private void appendTimestamp(long timestamp) {
+        days.appendDateTime(line, timestamp);
+    }
+    
+    private void appendCsv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == ';' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            line.append(value);
+            return;
+        }
+        line.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                line.append('"');
+            }
+            line.append(c);
+        }
+        line.append('"');
+    }
+    
+    private void appendJson(String value) {
+        Json.appendString(line, value);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.zip.CRC32;
+
+public class OperationJournal implements Closeable {
+    // Записи первой версии хранили сумму в double; они по-прежнему читаются
+    private static final byte LEGACY_OPERATION_RECORD = 1;
+    private static final byte LEGACY_BUDGET_RECORD = 2;
+    private static final byte OPERATION_RECORD = 3;
+    private static final byte BUDGET_RECORD = 4;
+    
+    // Групповая фиксация: fsync выполняется раз в N записей или раз в интервал времени
+    private static final int GROUP_COMMIT_RECORDS = 64;
+    private static final long GROUP_COMMIT_MILLIS = 200;
+    
+    private final File file;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(64);
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    // Одиночная запись с рамкой, готовая к отправке в файл
+    private final ByteArrayOutputStream frameBuffer = new ByteArrayOutputStream(128);
+    private final DataOutputStream frame = new DataOutputStream(frameBuffer);
+    private final CRC32 crc = new CRC32();
+    private FileOutputStream fileStream;
+    private DataOutputStream out;
+    private int recordCount;
+    private int pendingSync;
+    private boolean broken;
+    // Длина файла по уже записанным данным: с нее начинается следующая запись
+    private long length;
+    private long lastSyncTime;
+    
+    public OperationJournal(File file) {
+        this.file = file;
+    }
+    
+    public File getFile() { return file; }
+    public int getRecordCount() { return recordCount; }
+    
+    // Воспроизводит журнал поверх снимка и отрезает недописанный хвост после сбоя.
+    // Хвостом считается все, начиная с записи, длина которой не помещается в файл, контрольная сумма не сходится
+    // или содержимое обрывается раньше, чем положено записи
+    public void replay(Wallet wallet) throws IOException {
+        long validLength = 0;
+        recordCount = 0;
+        
+        if (file.exists()) {
+            long fileLength = file.length();
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                while (validLength + 8 <= fileLength) {
+                    int length = in.readInt();
+                    // Длина прочитана с диска: не доверяем ей, пока не убедимся, что запись помещается в файл
+                    if (length <= 0 || length > fileLength - validLength - 8) {
+                        break;
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    int checksum = in.readInt();
+                    crc.reset();
+                    crc.update(payload, 0, length);
+                    if ((int) crc.getValue() != checksum) {
+                        break;
+                    }
+                    try {
+                        applyRecord(wallet, new DataInputStream(new ByteArrayInputStream(payload)));
+                    } catch (EOFException e) {
+                        break;
+                    }
+                    validLength += 8 + length;
+                    recordCount++;
+                }
+            }
+            if (validLength < fileLength) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+        }
+        open();
+    }
+    
+    private void applyRecord(Wallet wallet, DataInputStream in) throws IOException {
+        long sequence = in.readLong();
+        byte kind = in.readByte();
+        String categoryName = in.readUTF();
+        OperationType type = OperationType.values()[in.readByte()];
+        boolean legacy = kind == LEGACY_OPERATION_RECORD || kind == LEGACY_BUDGET_RECORD;
+        long amount = legacy ? Money.fromDouble(in.readDouble()) : in.readLong();
+        
+        if (kind == OPERATION_RECORD || kind == LEGACY_OPERATION_RECORD) {
+            // Все поля читаются до изменения кошелька: оборванная запись не оставляет следов
+            Date date = new Date(in.readLong());
+            wallet.restoreOperation(sequence, new Operation(wallet.getCategory(categoryName, type), amount, date));
+        } else if (kind == BUDGET_RECORD || kind == LEGACY_BUDGET_RECORD) {
+            wallet.restoreBudget(sequence, new Budget(wallet.getCategory(categoryName, type), amount));
+        } else {
+            throw new IOException("Неизвестный тип записи журнала: " + kind);
+        }
+    }
+    
+    private void open() throws IOException {
+        if (out == null) {
+            fileStream = new FileOutputStream(file, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileStream));
+            length = fileStream.getChannel().size();
+            lastSyncTime = System.currentTimeMillis();
+        }
+    }
+    
+    public void appendOperation(long sequence, Operation operation) throws IOException {
+        frameBuffer.reset();
+        startRecord(sequence, OPERATION_RECORD, operation.getCategory(), operation.getAmount());
+        record.writeLong(operation.getDate().getTime());
+        frameRecord(frame);
+        writeRecord();
+    }
+    
+    // Пачка записывается целиком и фиксируется одним fsync; номера записей - firstSequence, firstSequence + 1, ...
+    // Вся пачка сначала собирается в памяти: если одна из записей не сериализуется (например, слишком длинное
+    // имя категории), в файл не попадает ничего, и номера записей не расходятся с кошельком.
+    // Буфер пачки свой: общий буфер одиночных записей не должен разрастаться до размера пачки
+    public void appendBatch(long firstSequence, OperationBatch batch) throws IOException {
+        ByteArrayOutputStream batchBuffer = new ByteArrayOutputStream(batch.size() * 48);
+        DataOutputStream batchFrames = new DataOutputStream(batchBuffer);
+        for (int i = 0; i < batch.size(); i++) {
+            startRecord(firstSequence + i, OPERATION_RECORD, batch.getCategory(i), batch.getAmount(i));
+            record.writeLong(batch.getTimestamp(i));
+            frameRecord(batchFrames);
+        }
+        writeFrames(batchBuffer, batch.size(), true);
+    }
+    
+    public void appendBudget(long sequence, Budget budget) throws IOException {
+        frameBuffer.reset();
+        startRecord(sequence, BUDGET_RECORD, budget.getCategory(), budget.getLimit());
+        frameRecord(frame);
+        writeRecord();
+    }
+    
+    private void startRecord(long sequence, byte kind, Category category, long amount) throws IOException {
+        recordBuffer.reset();
+        record.writeLong(sequence);
+        record.writeByte(kind);
+        record.writeUTF(category.getName());
+        record.writeByte(category.getType().ordinal());
+        record.writeLong(amount);
+    }
+    
+    private void frameRecord(DataOutputStream target) throws IOException {
+        byte[] payload = recordBuffer.toByteArray();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        target.writeInt(payload.length);
+        target.write(payload);
+        target.writeInt((int) crc.getValue());
+    }
+    
+    private void writeRecord() throws IOException {
+        // Запись уходит в ОС сразу, поэтому падение процесса ее не теряет;
+        // дорогой fsync откладывается до заполнения группы
+        writeFrames(frameBuffer, 1, pendingSync + 1 >= GROUP_COMMIT_RECORDS
+                || System.currentTimeMillis() - lastSyncTime >= GROUP_COMMIT_MILLIS);
+    }
+    
+    // Если запись или fsync не удались (например, кончилось место), файл обрезается до начала этих записей:
+    // иначе их начало осталось бы в файле с номерами, которые кошелек выдаст следующим операциям,
+    // и при восстановлении следующие операции были бы молча пропущены как уже примененные
+    private void writeFrames(ByteArrayOutputStream frames, int records, boolean syncNow) throws IOException {
+        if (broken) {
+            throw new IOException("Журнал " + file.getName() + " недоступен для записи после ошибки");
+        }
+        open();
+        long start = length;
+        try {
+            frames.writeTo(out);
+            out.flush();
+            length += frames.size();
+            pendingSync += records;
+            if (syncNow) {
+                sync();
+            }
+        } catch (IOException e) {
+            discardFrom(start);
+            throw e;
+        }
+        recordCount += records;
+    }
+    
+    private void discardFrom(long validLength) {
+        // Буфер потока может хранить часть записей: поток бросается без сброса, файл закрывается напрямую
+        FileOutputStream stream = fileStream;
+        out = null;
+        fileStream = null;
+        pendingSync = 0;
+        try {
+            stream.getChannel().truncate(validLength);
+            length = validLength;
+            stream.getFD().sync();
+        } catch (IOException e) {
+            // Обрезать не удалось: дописывать после оборванных записей нельзя до перезапуска,
+            // который перечитает журнал и продолжит нумерацию с того, что в нем осталось
+            broken = true;
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                // Файл уже приведен в порядок или помечен как недоступный
+            }
+        }
+    }
+    
+    public void sync() throws IOException {
+        if (out != null && pendingSync > 0) {
+            out.flush();
+            fileStream.getFD().sync();
+            pendingSync = 0;
+        }
+        lastSyncTime = System.currentTimeMillis();
+    }
+    
+    // Вызывается после успешной записи снимка: все записи журнала уже в нем
+    public void truncate() throws IOException {
+        close();
+        Files.deleteIfExists(file.toPath());
+        recordCount = 0;
+        open();
+    }
+    
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            sync();
+            out.close();
+            out = null;
+            fileStream = null;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,58 @@
+import java.util.*;
+
+// Параметры запроса по операциям кошелька: категории, тип, период [from, to) и диапазон сумм в копейках
+public class OperationQuery {
+    private final Set<String> categoryNames = new LinkedHashSet<>();
+    private OperationType type;
+    private long from = Long.MIN_VALUE;
+    private long to = Long.MAX_VALUE;
+    private long minAmount = Long.MIN_VALUE;
+    private long maxAmount = Long.MAX_VALUE;
+    
+    // Без указания категорий в запрос попадают все категории подходящего типа
+    public OperationQuery categories(Collection<String> names) {
+        categoryNames.addAll(names);
+        return this;
+    }
+    
+    // Без указания типа учитываются и доходы, и расходы
+    public OperationQuery type(OperationType type) {
+        this.type = type;
+        return this;
+    }
+    
+    public OperationQuery between(Date from, Date to) {
+        this.from = from.getTime();
+        this.to = to.getTime();
+        return this;
+    }
+    
+    public OperationQuery amountBetween(long minAmount, long maxAmount) {
+        this.minAmount = minAmount;
+        this.maxAmount = maxAmount;
+        return this;
+    }
+    
+    public Set<String> getCategoryNames() { return categoryNames; }
+    public OperationType getType() { return type; }
+    public long getFrom() { return from; }
+    public long getTo() { return to; }
+    public long getMinAmount() { return minAmount; }
+    public long getMaxAmount() { return maxAmount; }
+    
+    public boolean matchesType(OperationType operationType) {
+        return type == null || type == operationType;
+    }
+    
+    public boolean hasPeriod() {
+        return from != Long.MIN_VALUE || to != Long.MAX_VALUE;
+    }
+    
+    public boolean hasAmountRange() {
+        return minAmount != Long.MIN_VALUE || maxAmount != Long.MAX_VALUE;
+    }
+    
+    public boolean matchesAmount(long amount) {
+        return amount >= minAmount && amount <= maxAmount;
+    }
+}
\ No newline at end of file
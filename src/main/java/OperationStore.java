@@ -0,0 +1,67 @@
+import java.util.Arrays;
+
+// Хранилище операций в виде параллельных примитивных массивов (около 21 байта на операцию)
+public class OperationStore {
+    private static final int INITIAL_CAPACITY = 16;
+    
+    private long[] amounts;
+    private long[] timestamps;
+    private int[] categoryIds;
+    private byte[] types;
+    private int size;
+    
+    public OperationStore() {
+        this(INITIAL_CAPACITY);
+    }
+    
+    public OperationStore(int capacity) {
+        capacity = Math.max(capacity, INITIAL_CAPACITY);
+        amounts = new long[capacity];
+        timestamps = new long[capacity];
+        categoryIds = new int[capacity];
+        types = new byte[capacity];
+    }
+    
+    public int size() { return size; }
+    
+    public void add(long amount, long timestamp, int categoryId, OperationType type) {
+        if (size == amounts.length) {
+            grow(size + 1);
+        }
+        amounts[size] = amount;
+        timestamps[size] = timestamp;
+        categoryIds[size] = categoryId;
+        types[size] = (byte) type.ordinal();
+        size++;
+    }
+    
+    public void ensureCapacity(int capacity) {
+        if (capacity > amounts.length) {
+            grow(capacity);
+        }
+    }
+    
+    private void grow(int minCapacity) {
+        int capacity = Math.max(minCapacity, amounts.length + (amounts.length >> 1));
+        amounts = Arrays.copyOf(amounts, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        categoryIds = Arrays.copyOf(categoryIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+    }
+    
+    public long getAmount(int index) { return amounts[checkIndex(index)]; }
+    public long getTimestamp(int index) { return timestamps[checkIndex(index)]; }
+    public int getCategoryId(int index) { return categoryIds[checkIndex(index)]; }
+    public boolean isIncome(int index) { return types[checkIndex(index)] == OperationType.INCOME.ordinal(); }
+    
+    public OperationType getType(int index) {
+        return isIncome(index) ? OperationType.INCOME : OperationType.EXPENSE;
+    }
+    
+    private int checkIndex(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return index;
+    }
+}
\ No newline at end of file
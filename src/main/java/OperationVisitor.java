@@ -0,0 +1,5 @@
+// Обход истории без создания объектов Operation: категория передается общим экземпляром кошелька, сумма - в копейках
+@FunctionalInterface
+public interface OperationVisitor {
+    void visit(Category category, long amount, long timestamp);
+}
\ No newline at end of file
@@ -0,0 +1,51 @@
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+// Хеш пароля PBKDF2-HMAC-SHA256 с солью; сам пароль нигде не хранится
+public final class PasswordHash {
+    // Число итераций для новых паролей; у каждого хеша хранится свое, поэтому значение можно повышать со временем
+    public static final int DEFAULT_ITERATIONS = Integer.getInteger("finance.passwordIterations", 100_000);
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    private final byte[] salt;
+    private final byte[] hash;
+    private final int iterations;
+    
+    public PasswordHash(byte[] salt, byte[] hash, int iterations) {
+        this.salt = salt.clone();
+        this.hash = hash.clone();
+        this.iterations = iterations;
+    }
+    
+    public static PasswordHash create(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        return new PasswordHash(salt, derive(password, salt, iterations), iterations);
+    }
+    
+    private static byte[] derive(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Алгоритм " + ALGORITHM + " недоступен", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+    
+    // Сравнение за постоянное время, чтобы по времени ответа нельзя было подбирать хеш
+    public boolean matches(String password) {
+        return MessageDigest.isEqual(hash, derive(password, salt, iterations));
+    }
+    
+    public byte[] getSalt() { return salt.clone(); }
+    public byte[] getHash() { return hash.clone(); }
+    public int getIterations() { return iterations; }
+}
\ No newline at end of file
@@ -0,0 +1,32 @@
+import java.util.*;
+
+public class QueryResult {
+    private final Map<Category, CategoryStats> stats;
+    private final Set<String> unknownCategories;
+    
+    public QueryResult(Map<Category, CategoryStats> stats, Set<String> unknownCategories) {
+        this.stats = Collections.unmodifiableMap(stats);
+        this.unknownCategories = Collections.unmodifiableSet(unknownCategories);
+    }
+    
+    // Итоги по категориям в порядке запроса
+    public Map<Category, CategoryStats> getStats() { return stats; }
+    // Запрошенные имена, по которым в кошельке нет ни одной операции
+    public Set<String> getUnknownCategories() { return unknownCategories; }
+    
+    public long getTotal() {
+        long total = 0;
+        for (CategoryStats categoryStats : stats.values()) {
+            total += categoryStats.getSum();
+        }
+        return total;
+    }
+    
+    public int getCount() {
+        int count = 0;
+        for (CategoryStats categoryStats : stats.values()) {
+            count += categoryStats.getCount();
+        }
+        return count;
+    }
+}
\ No newline at end of file
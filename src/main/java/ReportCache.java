@@ -0,0 +1,94 @@
+import java.util.*;
+
+// Материализованный отчет кошелька за все время. Строки категорий и бюджетов форматируются один раз
+// и переформатируются только для категорий, затронутых новыми операциями и бюджетами; готовый отчет
+// отдается повторно, пока кошелек не изменится. Как и сам кошелек, используется под блокировкой пользователя
+class ReportCache {
+    static final String TITLE = "📊 ФИНАНСОВЫЙ ОТЧЕТ";
+    static final String BALANCE_LABEL = "💳 Текущий баланс: ";
+    
+    private final Wallet wallet;
+    private MoneyFormat format;
+    private String[] categoryLines = new String[16];
+    private String[] budgetLines = new String[16];
+    private final BitSet dirty = new BitSet();
+    private boolean allDirty = true;
+    private WalletReport report;
+    
+    ReportCache(Wallet wallet) {
+        this.wallet = wallet;
+    }
+    
+    void onOperation(int categoryId) {
+        dirty.set(categoryId);
+        report = null;
+    }
+    
+    void onBudget(int categoryId) {
+        dirty.set(categoryId);
+        report = null;
+    }
+    
+    void invalidate() {
+        allDirty = true;
+        report = null;
+    }
+    
+    // Строки кэша отформатированы конкретным форматом; другой формат перестраивает их целиком
+    WalletReport get(MoneyFormat format) {
+        if (format != this.format) {
+            this.format = format;
+            invalidate();
+        }
+        if (report == null) {
+            report = build();
+        }
+        return report;
+    }
+    
+    private WalletReport build() {
+        CategoryRegistry categories = wallet.getCategories();
+        int size = categories.size();
+        if (size > categoryLines.length) {
+            int capacity = Math.max(size, categoryLines.length * 2);
+            categoryLines = Arrays.copyOf(categoryLines, capacity);
+            budgetLines = Arrays.copyOf(budgetLines, capacity);
+        }
+        if (allDirty) {
+            dirty.set(0, size);
+            allDirty = false;
+        }
+        for (int id = dirty.nextSetBit(0); id >= 0 && id < size; id = dirty.nextSetBit(id + 1)) {
+            Category category = categories.get(id);
+            long amount = wallet.getCategoryAmount(id);
+            categoryLines[id] = amount != 0 ? WalletReport.categoryLine(format, category, amount) : null;
+            Budget budget = wallet.getBudget(category);
+            long spent = category.getType() == OperationType.EXPENSE ? amount : 0;
+            budgetLines[id] = budget != null ? WalletReport.budgetLine(format, budget, spent) : null;
+        }
+        dirty.clear();
+        
+        // Остальное - сборка готовых строк по номерам категорий, без обхода истории и без форматирования сумм
+        Map<Category, Long> income = new LinkedHashMap<>();
+        Map<Category, Long> expenses = new LinkedHashMap<>();
+        Map<Category, Budget> budgets = new LinkedHashMap<>();
+        List<String> incomeLines = new ArrayList<>();
+        List<String> expenseLines = new ArrayList<>();
+        List<String> budgetTexts = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            Category category = categories.get(id);
+            if (categoryLines[id] != null) {
+                boolean isIncome = category.getType() == OperationType.INCOME;
+                (isIncome ? income : expenses).put(category, wallet.getCategoryAmount(id));
+                (isIncome ? incomeLines : expenseLines).add(categoryLines[id]);
+            }
+            if (budgetLines[id] != null) {
+                budgets.put(category, wallet.getBudget(category));
+                budgetTexts.add(budgetLines[id]);
+            }
+        }
+        String text = WalletReport.render(format, TITLE, wallet.getTotalIncome(), incomeLines,
+                wallet.getTotalExpenses(), expenseLines, budgetTexts, BALANCE_LABEL, wallet.getBalance());
+        return new WalletReport(wallet.getTotalIncome(), wallet.getTotalExpenses(), income, expenses, budgets, text);
+    }
+}
\ No newline at end of file
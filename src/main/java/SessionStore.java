@@ -0,0 +1,76 @@
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Сессии HTTP-сервиса: случайный токен входа -> пользователь. Сессия истекает после периода бездействия
+public class SessionStore {
+    // Время бездействия до истечения сессии; задается -Dfinance.sessionTimeoutSeconds
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = Long.getLong("finance.sessionTimeoutSeconds", 30 * 60) * 1000;
+    private static final int TOKEN_BYTES = 24;
+    
+    private final ConcurrentHashMap<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final long idleTimeoutMillis;
+    
+    private static class Session {
+        final User user;
+        volatile long lastAccess;
+        
+        Session(User user, long now) {
+            this.user = user;
+            this.lastAccess = now;
+        }
+    }
+    
+    public SessionStore(long idleTimeoutMillis) {
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+    
+    public String open(User user) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        sessions.put(token, new Session(user, System.currentTimeMillis()));
+        return token;
+    }
+    
+    // Возвращает null, если токена нет или сессия истекла; обращение продлевает сессию
+    public User get(String token) {
+        Session session = token == null ? null : sessions.get(token);
+        if (session == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (now - session.lastAccess > idleTimeoutMillis) {
+            sessions.remove(token, session);
+            return null;
+        }
+        session.lastAccess = now;
+        return session.user;
+    }
+    
+    public User close(String token) {
+        Session session = token == null ? null : sessions.remove(token);
+        return session == null ? null : session.user;
+    }
+    
+    public int expireIdle() {
+        long deadline = System.currentTimeMillis() - idleTimeoutMillis;
+        int before = sessions.size();
+        sessions.values().removeIf(session -> session.lastAccess < deadline);
+        return before - sessions.size();
+    }
+    
+    public int size() {
+        return sessions.size();
+    }
+    
+    // Пользователи открытых сессий (у одного пользователя может быть несколько сессий)
+    public Set<User> users() {
+        Set<User> users = new LinkedHashSet<>();
+        sessions.values().forEach(session -> users.add(session.user));
+        return users;
+    }
+}
\ No newline at end of file
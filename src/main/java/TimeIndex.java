@@ -0,0 +1,245 @@
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.IntConsumer;
+
+// Индекс операций кошелька по времени: упорядоченные позиции, нарастающий баланс и суммы по дням и месяцам
+public class TimeIndex {
+    private final OperationStore store;
+    private final ZoneId zone;
+    
+    // Позиции операций в хранилище в порядке времени и баланс после каждой из них
+    private int[] order = new int[16];
+    private long[] runningBalance = new long[16];
+    private int size;
+    // Позиции с lateFrom до конца хранилища пришли после операции не по порядку времени: они вливаются
+    // в порядок при ближайшем запросе, -1 - таких нет
+    private int lateFrom = -1;
+    
+    // Ключ дня - номер дня эпохи, ключ месяца - год * 12 + номер месяца; значения - суммы по номеру категории
+    private final TreeMap<Long, long[]> daily = new TreeMap<>();
+    private final TreeMap<Long, long[]> monthly = new TreeMap<>();
+    // Сколько всего элементов в массивах дневных и месячных сумм - для оценки памяти
+    private long bucketSlots;
+    
+    public TimeIndex(OperationStore store) {
+        this(store, ZoneId.systemDefault());
+    }
+    
+    public TimeIndex(OperationStore store, ZoneId zone) {
+        this.store = store;
+        this.zone = zone;
+    }
+    
+    public ZoneId getZone() { return zone; }
+    
+    public void add(int position) {
+        long timestamp = store.getTimestamp(position);
+        int categoryId = store.getCategoryId(position);
+        long amount = store.getAmount(position);
+        LocalDate date = Instant.ofEpochMilli(timestamp).atZone(zone).toLocalDate();
+        addToBucket(daily, date.toEpochDay(), categoryId, amount);
+        addToBucket(monthly, monthKey(YearMonth.from(date)), categoryId, amount);
+        
+        if (lateFrom >= 0) {
+            return;
+        }
+        if (size > 0 && timestamp < store.getTimestamp(order[size - 1])) {
+            lateFrom = position;
+            return;
+        }
+        ensureCapacity(size + 1);
+        order[size] = position;
+        runningBalance[size] = balanceAfter(size > 0 ? runningBalance[size - 1] : 0, position);
+        size++;
+    }
+    
+    private void ensureCapacity(int capacity) {
+        if (capacity > order.length) {
+            capacity = Math.max(capacity, order.length + (order.length >> 1));
+            order = Arrays.copyOf(order, capacity);
+            runningBalance = Arrays.copyOf(runningBalance, capacity);
+        }
+    }
+    
+    private long balanceAfter(long previous, int position) {
+        long amount = store.getAmount(position);
+        return store.isIncome(position) ? previous + amount : previous - amount;
+    }
+    
+    private void addToBucket(TreeMap<Long, long[]> buckets, long key, int categoryId, long amount) {
+        long[] sums = buckets.get(key);
+        if (sums == null || categoryId >= sums.length) {
+            bucketSlots += categoryId + 1 - (sums == null ? 0 : sums.length);
+            sums = sums == null ? new long[categoryId + 1] : Arrays.copyOf(sums, categoryId + 1);
+            buckets.put(key, sums);
+        }
+        sums[categoryId] += amount;
+    }
+    
+    // Примерный объем индекса в памяти: порядок с балансом и массивы сумм по дням и месяцам вместе с узлами TreeMap
+    public long estimateMemory() {
+        return 12L * order.length + 8 * bucketSlots + 72L * (daily.size() + monthly.size());
+    }
+    
+    private static long monthKey(YearMonth month) {
+        return month.getYear() * 12L + month.getMonthValue() - 1;
+    }
+    
+    // Вливает опоздавшие позиции в порядок: они сортируются отдельно, а упорядоченная часть переписывается
+    // только начиная с самой ранней из них, поэтому запоздалая пачка за последние дни не трогает всю историю.
+    // При равном времени раньше идет позиция, добавленная раньше
+    private void ensureOrdered() {
+        if (lateFrom < 0) {
+            return;
+        }
+        int[] late = new int[store.size() - lateFrom];
+        for (int i = 0; i < late.length; i++) {
+            late[i] = lateFrom + i;
+        }
+        sortByTime(late);
+        lateFrom = -1;
+        
+        long first = store.getTimestamp(late[0]);
+        int start = first == Long.MAX_VALUE ? size : lowerBound(first + 1);
+        int[] tail = Arrays.copyOfRange(order, start, size);
+        ensureCapacity(size + late.length);
+        int k = start;
+        int i = 0;
+        int j = 0;
+        while (i < tail.length || j < late.length) {
+            int position;
+            if (j == late.length || (i < tail.length && store.getTimestamp(tail[i]) <= store.getTimestamp(late[j]))) {
+                position = tail[i++];
+            } else {
+                position = late[j++];
+            }
+            order[k] = position;
+            runningBalance[k] = balanceAfter(k > 0 ? runningBalance[k - 1] : 0, position);
+            k++;
+        }
+        size = k;
+    }
+    
+    // Сортировка слиянием по времени без упаковки в Integer; устойчива, поэтому при равном времени порядок позиций сохраняется
+    private void sortByTime(int[] positions) {
+        int[] buffer = new int[positions.length];
+        for (int width = 1; width < positions.length; width <<= 1) {
+            for (int from = 0; from < positions.length; from += width << 1) {
+                int middle = Math.min(from + width, positions.length);
+                int to = Math.min(from + (width << 1), positions.length);
+                int i = from;
+                int j = middle;
+                for (int k = from; k < to; k++) {
+                    if (j == to || (i < middle && store.getTimestamp(positions[i]) <= store.getTimestamp(positions[j]))) {
+                        buffer[k] = positions[i++];
+                    } else {
+                        buffer[k] = positions[j++];
+                    }
+                }
+            }
+            System.arraycopy(buffer, 0, positions, 0, positions.length);
+        }
+    }
+    
+    // Первая позиция в порядке времени, у которой время не меньше заданного
+    private int lowerBound(long timestamp) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (store.getTimestamp(order[mid]) < timestamp) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+    
+    // Обходит позиции операций с временем в интервале [from, to) в порядке времени
+    public void forEachInRange(long from, long to, IntConsumer action) {
+        ensureOrdered();
+        for (int k = lowerBound(from); k < size && store.getTimestamp(order[k]) < to; k++) {
+            action.accept(order[k]);
+        }
+    }
+    
+    // Позиции операций в порядке времени; операции с временем в [from, to) занимают в нем
+    // элементы с номерами из rangeBounds(from, to): {начало, конец}
+    int[] orderedPositions() {
+        ensureOrdered();
+        return order;
+    }
+    
+    int[] rangeBounds(long from, long to) {
+        ensureOrdered();
+        int start = lowerBound(from);
+        return new int[] {start, Math.max(start, lowerBound(to))};
+    }
+    
+    public int countInRange(long from, long to) {
+        ensureOrdered();
+        return Math.max(0, lowerBound(to) - lowerBound(from));
+    }
+    
+    // Баланс с учетом всех операций, совершенных не позже заданного момента
+    public long balanceAt(long timestamp) {
+        ensureOrdered();
+        int k = timestamp == Long.MAX_VALUE ? size : lowerBound(timestamp + 1);
+        return k == 0 ? 0 : runningBalance[k - 1];
+    }
+    
+    public long[] sumsForMonth(YearMonth month) {
+        long[] sums = monthly.get(monthKey(month));
+        return sums == null ? new long[0] : sums.clone();
+    }
+    
+    // Суммы по категориям за [from, to): полные дни берутся из дневных сумм, края периода - из индекса
+    public long[] sumsInRange(long from, long to) {
+        long[] result = new long[0];
+        if (from >= to) {
+            return result;
+        }
+        long firstDay = Instant.ofEpochMilli(from).atZone(zone).toLocalDate().toEpochDay();
+        long lastDay = Instant.ofEpochMilli(to).atZone(zone).toLocalDate().toEpochDay();
+        long firstFullDay = startOfDay(firstDay) == from ? firstDay : firstDay + 1;
+        
+        if (firstFullDay >= lastDay) {
+            return scan(from, to, result);
+        }
+        for (long[] sums : daily.subMap(firstFullDay, true, lastDay, false).values()) {
+            result = add(result, sums);
+        }
+        result = scan(from, startOfDay(firstFullDay), result);
+        return scan(startOfDay(lastDay), to, result);
+    }
+    
+    private long startOfDay(long epochDay) {
+        return LocalDate.ofEpochDay(epochDay).atStartOfDay(zone).toInstant().toEpochMilli();
+    }
+    
+    private long[] scan(long from, long to, long[] result) {
+        long[][] holder = {result};
+        forEachInRange(from, to, position -> {
+            int categoryId = store.getCategoryId(position);
+            if (categoryId >= holder[0].length) {
+                holder[0] = Arrays.copyOf(holder[0], categoryId + 1);
+            }
+            holder[0][categoryId] += store.getAmount(position);
+        });
+        return holder[0];
+    }
+    
+    private static long[] add(long[] target, long[] sums) {
+        if (sums.length > target.length) {
+            target = Arrays.copyOf(target, sums.length);
+        }
+        for (int i = 0; i < sums.length; i++) {
+            target[i] += sums[i];
+        }
+        return target;
+    }
+}
\ No newline at end of file
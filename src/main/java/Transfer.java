@@ -0,0 +1,39 @@
+import java.util.Date;
+
+// Перевод между пользователями: одна запись журнала переводов, которая применяется к обоим кошелькам
+public class Transfer {
+    private final long id;
+    private final String from;
+    private final String to;
+    private final long amount;
+    private final long timestamp;
+    
+    public Transfer(long id, String from, String to, long amount, long timestamp) {
+        this.id = id;
+        this.from = from;
+        this.to = to;
+        this.amount = amount;
+        this.timestamp = timestamp;
+    }
+    
+    public long getId() { return id; }
+    public String getFrom() { return from; }
+    public String getTo() { return to; }
+    public long getAmount() { return amount; }
+    public Date getDate() { return new Date(timestamp); }
+    
+    public boolean involves(String login) {
+        return from.equals(login) || to.equals(login);
+    }
+    
+    // Отражает перевод в кошельке участника; повторное применение того же перевода ничего не меняет
+    void applyTo(String login, Wallet wallet, boolean notify) {
+        if (from.equals(login)) {
+            Category category = wallet.getCategory("Перевод пользователю " + to, OperationType.EXPENSE);
+            wallet.applyTransfer(id, new Operation(category, getAmount(), getDate()), notify);
+        } else if (to.equals(login)) {
+            Category category = wallet.getCategory("Перевод от пользователя " + from, OperationType.INCOME);
+            wallet.applyTransfer(id, new Operation(category, getAmount(), getDate()), notify);
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,219 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+// Общий журнал переводов: каждый перевод записывается один раз и при восстановлении применяется к обоим участникам
+public class TransferJournal implements Closeable {
+    private static final byte TRANSFER_RECORD = 1;
+    // После сжатия журнал начинается с этой записи, чтобы номера переводов не начинались заново
+    private static final byte CHECKPOINT_RECORD = 2;
+    
+    private static final int GROUP_COMMIT_RECORDS = 64;
+    private static final long GROUP_COMMIT_MILLIS = 200;
+    
+    private final File file;
+    private final ByteArrayOutputStream recordBuffer = new ByteArrayOutputStream(64);
+    private final DataOutputStream record = new DataOutputStream(recordBuffer);
+    private final CRC32 crc = new CRC32();
+    // Переводы журнала по участникам: загрузка кошелька применяет только свои переводы, не перечитывая файл.
+    // Журнал сжимается каждые несколько тысяч записей, поэтому индекс остается небольшим
+    private final Map<String, List<Transfer>> transfersByLogin = new HashMap<>();
+    private FileOutputStream fileStream;
+    private DataOutputStream out;
+    private boolean scanned;
+    private long lastId;
+    private int recordCount;
+    private int pendingSync;
+    private long lastSyncTime;
+    
+    public TransferJournal(File file) {
+        this.file = file;
+    }
+    
+    public File getFile() { return file; }
+    
+    public synchronized int getRecordCount() throws IOException {
+        open();
+        return recordCount;
+    }
+    
+    // Логины, у которых в журнале есть переводы, еще не попавшие в снимки
+    public synchronized Set<String> getParticipants() throws IOException {
+        open();
+        return new HashSet<>(transfersByLogin.keySet());
+    }
+    
+    // Применяет к кошельку все его переводы, которых еще нет в снимке
+    public synchronized void replay(String login, Wallet wallet) throws IOException {
+        open();
+        for (Transfer transfer : transfersByLogin.getOrDefault(login, Collections.emptyList())) {
+            transfer.applyTo(login, wallet, false);
+        }
+    }
+    
+    public synchronized Transfer append(String from, String to, long amount, long timestamp) throws IOException {
+        open();
+        Transfer transfer = new Transfer(lastId + 1, from, to, amount, timestamp);
+        recordBuffer.reset();
+        record.writeLong(transfer.getId());
+        record.writeByte(TRANSFER_RECORD);
+        record.writeUTF(from);
+        record.writeUTF(to);
+        record.writeLong(amount);
+        record.writeLong(timestamp);
+        writeRecord();
+        
+        lastId = transfer.getId();
+        index(transfer);
+        return transfer;
+    }
+    
+    // При первом обращении находит последний номер перевода и отрезает недописанный хвост после сбоя
+    private void open() throws IOException {
+        if (!scanned) {
+            recordCount = 0;
+            long validLength = readRecords(transfer -> {
+                index(transfer);
+                recordCount++;
+            });
+            if (validLength < file.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(validLength);
+                }
+            }
+            scanned = true;
+        }
+        if (out == null) {
+            fileStream = new FileOutputStream(file, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileStream));
+            lastSyncTime = System.currentTimeMillis();
+        }
+    }
+    
+    private void index(Transfer transfer) {
+        transfersByLogin.computeIfAbsent(transfer.getFrom(), login -> new ArrayList<>()).add(transfer);
+        transfersByLogin.computeIfAbsent(transfer.getTo(), login -> new ArrayList<>()).add(transfer);
+    }
+    
+    private interface TransferHandler {
+        void handle(Transfer transfer) throws IOException;
+    }
+    
+    // Возвращает длину корректной части файла. Хвост отрезается по тем же правилам, что и в журнале кошелька:
+    // длина, не помещающаяся в файл, несовпадение контрольной суммы или оборванное содержимое записи
+    private long readRecords(TransferHandler handler) throws IOException {
+        long validLength = 0;
+        if (!file.exists()) {
+            return validLength;
+        }
+        long fileLength = file.length();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (validLength + 8 <= fileLength) {
+                int length = in.readInt();
+                if (length <= 0 || length > fileLength - validLength - 8) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                int checksum = in.readInt();
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                
+                long id;
+                byte kind;
+                Transfer transfer = null;
+                try {
+                    DataInputStream recordIn = new DataInputStream(new ByteArrayInputStream(payload));
+                    id = recordIn.readLong();
+                    kind = recordIn.readByte();
+                    if (kind == TRANSFER_RECORD) {
+                        transfer = new Transfer(id, recordIn.readUTF(), recordIn.readUTF(),
+                                recordIn.readLong(), recordIn.readLong());
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                if (kind != TRANSFER_RECORD && kind != CHECKPOINT_RECORD) {
+                    throw new IOException("Неизвестный тип записи журнала переводов: " + kind);
+                }
+                lastId = Math.max(lastId, id);
+                if (transfer != null) {
+                    handler.handle(transfer);
+                }
+                validLength += 8 + length;
+            }
+        }
+        return validLength;
+    }
+    
+    private void frameRecord(DataOutputStream target) throws IOException {
+        byte[] payload = recordBuffer.toByteArray();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        target.writeInt(payload.length);
+        target.write(payload);
+        target.writeInt((int) crc.getValue());
+    }
+    
+    private void writeRecord() throws IOException {
+        frameRecord(out);
+        // Как и в журнале кошелька: запись сразу уходит в ОС, fsync выполняется группой
+        out.flush();
+        recordCount++;
+        pendingSync++;
+        
+        if (pendingSync >= GROUP_COMMIT_RECORDS
+                || System.currentTimeMillis() - lastSyncTime >= GROUP_COMMIT_MILLIS) {
+            sync();
+        }
+    }
+    
+    public synchronized void sync() throws IOException {
+        if (out != null && pendingSync > 0) {
+            out.flush();
+            fileStream.getFD().sync();
+            pendingSync = 0;
+        }
+        lastSyncTime = System.currentTimeMillis();
+    }
+    
+    // Вызывается, когда снимки всех участников уже содержат все переводы журнала.
+    // Файл с единственной записью о последнем номере подменяет старый атомарно
+    public synchronized void truncate() throws IOException {
+        open();
+        close();
+        
+        File tmp = new File(file.getPath() + ".tmp");
+        recordBuffer.reset();
+        record.writeLong(lastId);
+        record.writeByte(CHECKPOINT_RECORD);
+        try (FileOutputStream fos = new FileOutputStream(tmp);
+             DataOutputStream tmpOut = new DataOutputStream(new BufferedOutputStream(fos))) {
+            frameRecord(tmpOut);
+            tmpOut.flush();
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), file.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        UserStorage.syncDirectory(file.getAbsoluteFile().getParentFile());
+        
+        transfersByLogin.clear();
+        recordCount = 0;
+        open();
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            sync();
+            out.close();
+            out = null;
+            fileStream = null;
+        }
+    }
+}
\ No newline at end of file
@@ -1,26 +1,66 @@
-import java.io.Serializable;
+import java.io.*;
 
 public class User implements Serializable {
-    private String login;
-    private String password;
-    private Wallet wallet;
+    private static final long serialVersionUID = -393853800420750327L;
     
-    public User(String login, String password) {
+    // В потоке сериализации сохраняется прежняя форма, поэтому старые файлы .dat читаются;
+    // пароль при записи больше не сохраняется
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("login", String.class),
+        new ObjectStreamField("password", String.class),
+        new ObjectStreamField("wallet", Wallet.class)
+    };
+    
+    private transient String login;
+    private transient PasswordHash credentials;
+    // Имя файлов кошелька в каталоге данных (из реестра пользователей)
+    private transient String walletName;
+    // Открытый пароль из старого файла .dat; нужен только для переноса пользователя в реестр
+    private transient String legacyPassword;
+    // null, пока кошелек не загружен: пользователь всегда в памяти, а кошелек загружается по первому обращению
+    private transient volatile Wallet wallet;
+    
+    public User(String login, PasswordHash credentials, String walletName) {
         this.login = login;
-        this.password = password;
-        this.wallet = new Wallet();
+        this.credentials = credentials;
+        this.walletName = walletName;
+    }
+    
+    // Пользователь без учетных данных, только для работы с хранилищем
+    public User(String login) {
+        this(login, null, login);
     }
     
     public String getLogin() { return login; }
-    public String getPassword() { return password; }
+    public String getWalletName() { return walletName; }
     public Wallet getWallet() { return wallet; }
+    public void setWallet(Wallet wallet) { this.wallet = wallet; }
+    
+    String getLegacyPassword() { return legacyPassword; }
     
     public boolean validatePassword(String password) {
-        return this.password.equals(password);
+        return credentials != null && credentials.matches(password);
+    }
+    
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        login = (String) fields.get("login", null);
+        walletName = login;
+        legacyPassword = (String) fields.get("password", null);
+        wallet = (Wallet) fields.get("wallet", null);
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("login", login);
+        fields.put("password", null);
+        fields.put("wallet", wallet);
+        out.writeFields();
     }
     
     @Override
     public String toString() {
-        return "User{login='" + login + "', walletBalance=" + wallet.getBalance() + "}";
+        Wallet current = wallet;
+        return "User{login='" + login + "', walletBalance=" + (current == null ? "не загружен" : current.getBalance()) + "}";
     }
 }
\ No newline at end of file
@@ -0,0 +1,329 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.CRC32;
+
+// Постоянный реестр пользователей. Источник истины - журнал users.registry (записи с длиной и CRC32, как в журналах кошельков);
+// к нему ведет хеш-индекс users.index с открытой адресацией, отображенный в память. При запуске читается только
+// заголовок индекса и хвост журнала, который индекс еще не покрывает, поэтому время запуска не зависит
+// ни от числа пользователей, ни от размера их кошельков, а поиск по логину не трогает данные кошельков
+public class UserRegistry implements Closeable {
+    private static final byte USER_RECORD = 1;
+    
+    private static final int INDEX_MAGIC = 0x46494458;
+    private static final int INDEX_VERSION = 1;
+    // Заголовок: сигнатура, версия, емкость, число записей, длина журнала, отраженная в индексе
+    private static final int HEADER_SIZE = 24;
+    // Слот: хеш логина и смещение записи в журнале плюс один (0 - пустой слот)
+    private static final int SLOT_SIZE = 12;
+    private static final int INITIAL_CAPACITY = 1024;
+    
+    private final File directory;
+    private final File logFile;
+    private final File indexFile;
+    private final int iterations;
+    private final CRC32 crc = new CRC32();
+    private RandomAccessFile log;
+    private MappedByteBuffer index;
+    private int capacity;
+    private int count;
+    
+    // Запись реестра: учетные данные и имя файлов кошелька
+    public static class Entry {
+        private final String login;
+        private final String walletName;
+        private final PasswordHash credentials;
+        
+        Entry(String login, String walletName, PasswordHash credentials) {
+            this.login = login;
+            this.walletName = walletName;
+            this.credentials = credentials;
+        }
+        
+        public String getLogin() { return login; }
+        public String getWalletName() { return walletName; }
+        public PasswordHash getCredentials() { return credentials; }
+    }
+    
+    public UserRegistry(File directory) throws IOException {
+        this(directory, PasswordHash.DEFAULT_ITERATIONS);
+    }
+    
+    public UserRegistry(File directory, int iterations) throws IOException {
+        this.directory = directory;
+        this.logFile = new File(directory, "users.registry");
+        this.indexFile = new File(directory, "users.index");
+        this.iterations = iterations;
+        
+        boolean created = !logFile.exists();
+        log = new RandomAccessFile(logFile, "rw");
+        long indexedLength = openIndex();
+        catchUp(indexedLength);
+        if (created) {
+            importLegacyUsers();
+        }
+    }
+    
+    public synchronized int size() { return count; }
+    
+    public synchronized Entry find(String login) throws IOException {
+        int hash = hash(login);
+        int mask = capacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int position = HEADER_SIZE + slot * SLOT_SIZE;
+            long offset = index.getLong(position + 4);
+            if (offset == 0) {
+                return null;
+            }
+            if (index.getInt(position) == hash) {
+                Entry entry = readEntry(offset - 1);
+                if (entry.getLogin().equals(login)) {
+                    return entry;
+                }
+            }
+        }
+    }
+    
+    // Возвращает null, если логин уже занят
+    public Entry register(String login, String password) throws IOException {
+        if (find(login) != null) {
+            return null;
+        }
+        // Хеширование намеренно медленное, поэтому выполняется вне блокировки реестра
+        PasswordHash credentials = PasswordHash.create(password, iterations);
+        return add(login, credentials);
+    }
+    
+    private synchronized Entry add(String login, PasswordHash credentials) throws IOException {
+        if (find(login) != null) {
+            return null;
+        }
+        return add(login, walletNameFor(login), credentials);
+    }
+    
+    private synchronized Entry add(String login, String walletName, PasswordHash credentials) throws IOException {
+        Entry entry = new Entry(login, walletName, credentials);
+        
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(128);
+        DataOutputStream record = new DataOutputStream(buffer);
+        record.writeByte(USER_RECORD);
+        record.writeUTF(entry.getLogin());
+        record.writeUTF(entry.getWalletName());
+        record.writeInt(credentials.getIterations());
+        writeBytes(record, credentials.getSalt());
+        writeBytes(record, credentials.getHash());
+        byte[] payload = buffer.toByteArray();
+        
+        // Сначала запись в журнал с fsync: регистрации редки, а потерять учетные данные нельзя
+        long offset = log.length();
+        crc.reset();
+        crc.update(payload, 0, payload.length);
+        log.seek(offset);
+        log.writeInt(payload.length);
+        log.write(payload);
+        log.writeInt((int) crc.getValue());
+        log.getFD().sync();
+        
+        insert(hash(login), offset);
+        // Заголовок обновляется после слотов: если сбой случится между ними, хвост журнала будет проиндексирован заново
+        index.force();
+        index.putLong(16, log.length());
+        return entry;
+    }
+    
+    // Файлы кошелька называются по логину, как и раньше, если логин годится для имени файла и не совпадает
+    // со служебными файлами каталога; иначе - по номеру записи. Такие имена начинаются с '_', а имена-логины - нет
+    private String walletNameFor(String login) {
+        if (login.matches("[^._/\\\\:*?\"<>|\\p{Cntrl}][^/\\\\:*?\"<>|\\p{Cntrl}]{0,63}")
+                && !login.equals("transfers") && !login.equals("users")) {
+            return login;
+        }
+        return "_" + (count + 1);
+    }
+    
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+    
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readUnsignedShort()];
+        in.readFully(bytes);
+        return bytes;
+    }
+    
+    private static int hash(String login) {
+        int h = login.hashCode();
+        return h ^ (h >>> 16);
+    }
+    
+    private Entry readEntry(long offset) throws IOException {
+        log.seek(offset);
+        byte[] payload = new byte[log.readInt()];
+        log.readFully(payload);
+        return parse(payload);
+    }
+    
+    private static Entry parse(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte kind = in.readByte();
+        if (kind != USER_RECORD) {
+            throw new IOException("Неизвестный тип записи реестра пользователей: " + kind);
+        }
+        String login = in.readUTF();
+        String walletName = in.readUTF();
+        int iterations = in.readInt();
+        byte[] salt = readBytes(in);
+        byte[] hash = readBytes(in);
+        return new Entry(login, walletName, new PasswordHash(salt, hash, iterations));
+    }
+    
+    // Открывает индекс или создает пустой, если файла нет или он поврежден; возвращает длину журнала, уже отраженную в нем
+    private long openIndex() throws IOException {
+        if (indexFile.length() >= HEADER_SIZE) {
+            try (RandomAccessFile file = new RandomAccessFile(indexFile, "rw")) {
+                int magic = file.readInt();
+                int version = file.readInt();
+                int storedCapacity = file.readInt();
+                int storedCount = file.readInt();
+                long indexedLength = file.readLong();
+                if (magic == INDEX_MAGIC && version == INDEX_VERSION
+                        && storedCapacity >= INITIAL_CAPACITY && Integer.bitCount(storedCapacity) == 1
+                        && file.length() == HEADER_SIZE + (long) storedCapacity * SLOT_SIZE
+                        && indexedLength <= log.length()) {
+                    index = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, file.length());
+                    capacity = storedCapacity;
+                    count = storedCount;
+                    return indexedLength;
+                }
+            }
+        }
+        index = createIndex(indexFile, INITIAL_CAPACITY);
+        capacity = INITIAL_CAPACITY;
+        count = 0;
+        return 0;
+    }
+    
+    private static MappedByteBuffer createIndex(File file, int capacity) throws IOException {
+        Files.deleteIfExists(file.toPath());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(HEADER_SIZE + (long) capacity * SLOT_SIZE);
+            MappedByteBuffer buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, raf.length());
+            buffer.putInt(0, INDEX_MAGIC);
+            buffer.putInt(4, INDEX_VERSION);
+            buffer.putInt(8, capacity);
+            buffer.putInt(12, 0);
+            buffer.putLong(16, 0);
+            return buffer;
+        }
+    }
+    
+    // Индексирует записи журнала после from; недописанный после сбоя хвост отрезается
+    private void catchUp(long from) throws IOException {
+        long position = from;
+        long length = log.length();
+        while (position + 8 <= length) {
+            log.seek(position);
+            int size = log.readInt();
+            if (size <= 0 || position + 8 + size > length) {
+                break;
+            }
+            byte[] payload = new byte[size];
+            log.readFully(payload);
+            int checksum = log.readInt();
+            crc.reset();
+            crc.update(payload, 0, size);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            String login = parse(payload).getLogin();
+            if (find(login) == null) {
+                insert(hash(login), position);
+            }
+            position += 8 + size;
+        }
+        if (position < length) {
+            log.setLength(position);
+        }
+        index.force();
+        index.putLong(16, position);
+    }
+    
+    private void insert(int hash, long offset) throws IOException {
+        if ((count + 1) * 2 > capacity) {
+            grow();
+        }
+        int mask = capacity - 1;
+        int slot = hash & mask;
+        while (index.getLong(HEADER_SIZE + slot * SLOT_SIZE + 4) != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index.putInt(HEADER_SIZE + slot * SLOT_SIZE, hash);
+        index.putLong(HEADER_SIZE + slot * SLOT_SIZE + 4, offset + 1);
+        count++;
+        index.putInt(12, count);
+    }
+    
+    // Индекс вдвое большей емкости строится во временном файле и атомарно подменяет старый;
+    // в слотах есть хеши, поэтому журнал при этом не читается
+    private void grow() throws IOException {
+        int newCapacity = capacity * 2;
+        File tmp = new File(directory, indexFile.getName() + ".tmp");
+        MappedByteBuffer grown = createIndex(tmp, newCapacity);
+        int mask = newCapacity - 1;
+        for (int slot = 0; slot < capacity; slot++) {
+            long offset = index.getLong(HEADER_SIZE + slot * SLOT_SIZE + 4);
+            if (offset == 0) {
+                continue;
+            }
+            int hash = index.getInt(HEADER_SIZE + slot * SLOT_SIZE);
+            int target = hash & mask;
+            while (grown.getLong(HEADER_SIZE + target * SLOT_SIZE + 4) != 0) {
+                target = (target + 1) & mask;
+            }
+            grown.putInt(HEADER_SIZE + target * SLOT_SIZE, hash);
+            grown.putLong(HEADER_SIZE + target * SLOT_SIZE + 4, offset);
+        }
+        grown.putInt(12, count);
+        grown.putLong(16, index.getLong(16));
+        grown.force();
+        Files.move(tmp.toPath(), indexFile.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        index = grown;
+        capacity = newCapacity;
+    }
+    
+    // Однократно при создании реестра: пользователи из старых файлов .dat (и их резервных копий .dat.bak)
+    // переносятся вместе с паролем, который там хранился открытым текстом
+    private void importLegacyUsers() throws IOException {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".dat") || name.endsWith(".dat.bak"));
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            User legacy;
+            try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                legacy = (User) in.readObject();
+            } catch (IOException | ClassNotFoundException | ClassCastException e) {
+                System.out.println("⚠️ Не удалось прочитать пользователя из " + file.getName() + ": " + e.getMessage());
+                continue;
+            }
+            // Файлы старого пользователя уже названы по логину, поэтому имя кошелька - сам логин
+            String login = legacy.getLogin();
+            if (login != null && legacy.getLegacyPassword() != null && find(login) == null) {
+                add(login, login, PasswordHash.create(legacy.getLegacyPassword(), iterations));
+            }
+        }
+    }
+    
+    @Override
+    public synchronized void close() throws IOException {
+        if (log != null) {
+            index.force();
+            log.close();
+            log = null;
+        }
+    }
+}
\ No newline at end of file
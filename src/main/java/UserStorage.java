@@ -0,0 +1,159 @@
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+public class UserStorage {
+    // После стольких записей в журнале делается новый снимок, а журнал сжимается
+    private static final int COMPACTION_THRESHOLD = 10_000;
+    
+    private static final Metrics.Timer SAVE_TIMER = Metrics.timer("finance_wallet_save_seconds",
+            "Запись снимка кошелька и сжатие его журнала");
+    
+    private final File directory;
+    private final TransferJournal transfers;
+    
+    public UserStorage(File directory) {
+        this.directory = directory;
+        this.transfers = new TransferJournal(new File(directory, "transfers.journal"));
+    }
+    
+    public TransferJournal getTransfers() { return transfers; }
+    public File getDirectory() { return directory; }
+    
+    // Файлы кошелька называются по имени из реестра пользователей, переводы в журнале - по логину
+    private File snapshotFile(String walletName) {
+        return new File(directory, walletName + WalletFile.EXTENSION);
+    }
+    
+    private File legacySnapshotFile(String walletName) {
+        return new File(directory, walletName + ".dat");
+    }
+    
+    private File journalFile(String walletName) {
+        return new File(directory, walletName + ".journal");
+    }
+    
+    public boolean isLoaded(User user) {
+        Wallet wallet = user.getWallet();
+        return wallet != null && wallet.getJournal() != null;
+    }
+    
+    public boolean load(User user) throws IOException, ClassNotFoundException {
+        if (isLoaded(user)) {
+            return false;
+        }
+        String walletName = user.getWalletName();
+        boolean restored = snapshotFile(walletName).exists() || legacySnapshotFile(walletName).exists()
+                || journalFile(walletName).exists();
+        
+        Wallet wallet = open(user.getLogin(), walletName);
+        user.setWallet(wallet);
+        return restored || wallet.getTransferSequence() > 0;
+    }
+    
+    // Восстанавливает кошелек из снимка, хвоста журнала и журнала переводов и подключает журнал для новых записей
+    private Wallet open(String login, String walletName) throws IOException, ClassNotFoundException {
+        File snapshot = snapshotFile(walletName);
+        File legacySnapshot = legacySnapshotFile(walletName);
+        if (!snapshot.exists() && legacySnapshot.exists()) {
+            DatMigrator.migrate(legacySnapshot);
+        }
+        Wallet wallet = snapshot.exists() ? WalletFile.read(snapshot) : new Wallet();
+        
+        OperationJournal journal = new OperationJournal(journalFile(walletName));
+        journal.replay(wallet);
+        transfers.replay(login, wallet);
+        wallet.attachJournal(journal);
+        return wallet;
+    }
+    
+    public boolean needsTransferCompaction() throws IOException {
+        return transfers.getRecordCount() >= COMPACTION_THRESHOLD;
+    }
+    
+    // Сохраняет снимок кошелька, который сейчас не загружен (нужно перед сжатием журнала переводов)
+    public void checkpoint(User user) throws IOException, ClassNotFoundException {
+        Wallet wallet = open(user.getLogin(), user.getWalletName());
+        try {
+            save(user.getWalletName(), wallet);
+        } finally {
+            wallet.getJournal().close();
+        }
+    }
+    
+    public void checkpointIfNeeded(User user) throws IOException {
+        if (isLoaded(user) && user.getWallet().getJournal().getRecordCount() >= COMPACTION_THRESHOLD) {
+            save(user);
+        }
+    }
+    
+    public void sync(User user) throws IOException {
+        if (isLoaded(user)) {
+            user.getWallet().getJournal().sync();
+        }
+        transfers.sync();
+    }
+    
+    public void save(User user) throws IOException {
+        save(user.getWalletName(), user.getWallet());
+    }
+    
+    // Пишет снимок атомарно (через временный файл) и после этого сжимает журнал
+    private void save(String walletName, Wallet wallet) throws IOException {
+        long started = SAVE_TIMER.start();
+        // Снимок запоминает номер последнего перевода, поэтому журнал переводов фиксируется раньше снимка:
+        // иначе после сбоя питания снимок опередит журнал и номер перевода будет выдан повторно
+        transfers.sync();
+        File snapshot = snapshotFile(walletName);
+        File tmp = new File(directory, walletName + WalletFile.EXTENSION + ".tmp");
+        WalletFile.write(wallet, tmp);
+        Files.move(tmp.toPath(), snapshot.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(directory);
+        
+        OperationJournal journal = wallet.getJournal();
+        if (journal != null) {
+            journal.truncate();
+        }
+        SAVE_TIMER.stop(started);
+    }
+    
+    // Фиксирует сам переименованный файл в каталоге. Не все платформы позволяют открыть каталог (Windows) -
+    // там переименование и так надежно, и ошибка пропускается
+    static void syncDirectory(File directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (FileChannel dir = channel) {
+            dir.force(true);
+        } catch (IOException e) {
+            // Каталог открылся, но fsync для него не поддерживается
+        }
+    }
+    
+    public void close(User user) throws IOException {
+        if (isLoaded(user)) {
+            user.getWallet().getJournal().close();
+        }
+    }
+    
+    // Закрывает общий журнал переводов; журналы кошельков закрываются через close(User)
+    public void close() throws IOException {
+        transfers.close();
+    }
+    
+    // Выгружает кошелек из памяти: все его изменения уже в журнале, поэтому достаточно зафиксировать журнал и закрыть его
+    public void unload(User user) throws IOException {
+        if (!isLoaded(user)) {
+            return;
+        }
+        checkpointIfNeeded(user);
+        close(user);
+        user.setWallet(null);
+    }
+}
\ No newline at end of file
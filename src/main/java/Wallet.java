@@ -1,109 +1,647 @@
-import java.io.Serializable;
+import java.io.*;
+import java.time.YearMonth;
 import java.util.*;
-import java.util.stream.Collectors;
 
 public class Wallet implements Serializable {
-    private List<Operation> operations;
-    private Map<Category, Budget> budgets;
-    private double balance;
+    private static final long serialVersionUID = 8405571364296433749L;
+    
+    // В потоке сериализации кошелек сохраняет прежнюю форму, поэтому старые файлы .dat читаются
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("operations", List.class),
+        new ObjectStreamField("budgets", Map.class),
+        new ObjectStreamField("balance", double.class),
+        new ObjectStreamField("journalSequence", long.class)
+    };
+    
+    // Режим самопроверки: после каждой операции агрегаты сверяются с полным пересчетом
+    private static final boolean CONSISTENCY_CHECK = Boolean.getBoolean("finance.consistencyCheck");
+    
+    private static final Metrics.Timer ADD_OPERATION_TIMER = Metrics.timer("finance_wallet_add_operation_seconds",
+            "Добавление операции в кошелек вместе с записью в журнал");
+    private static final Metrics.Timer ADD_BATCH_TIMER = Metrics.timer("finance_wallet_add_batch_seconds",
+            "Добавление пачки операций (импорт)");
+    private static final Metrics.Timer QUERY_TIMER = Metrics.timer("finance_wallet_query_seconds",
+            "Запросы по категориям");
+    private static final Metrics.Counter BUDGET_CHECKS = Metrics.counter("finance_budget_checks_total",
+            "Проверки порогов бюджета");
+    private static final Metrics.Counter BUDGET_ALERTS = Metrics.counter("finance_budget_alerts_total",
+            "Оповещения о достижении порога бюджета");
+    
+    private transient OperationStore store;
+    private transient Map<Category, Budget> budgets;
+    private transient CategoryRegistry categories;
+    private transient TimeIndex timeIndex;
+    private transient CategoryPostings postings;
+    private transient ReportCache reports;
+    private transient BudgetTracker budgetTracker;
+    private transient List<BudgetAlert> pendingAlerts;
+    private transient List<Operation> operationsView;
+    private transient Map<Category, Budget> budgetsView;
+    
+    // Агрегаты поддерживаются инкрементально в addOperation(): суммы в копейках, индекс - номер категории
+    private transient long totalIncome;
+    private transient long totalExpenses;
+    private transient long[] amountByCategory;
+    private transient int[] countByCategory;
+    private transient long[] minByCategory;
+    private transient long[] maxByCategory;
+    
+    // Номер последней записи журнала, уже отраженной в этом кошельке
+    private transient long journalSequence;
+    private transient OperationJournal journal;
+    // Номер последнего перевода из журнала переводов, уже примененного к кошельку
+    private transient long transferSequence;
     
     public Wallet() {
-        this.operations = new ArrayList<>();
+        init();
+    }
+    
+    private void init() {
+        this.store = new OperationStore();
         this.budgets = new HashMap<>();
-        this.balance = 0.0;
+        this.categories = new CategoryRegistry();
+        this.timeIndex = new TimeIndex(store);
+        this.postings = new CategoryPostings();
+        this.reports = new ReportCache(this);
+        this.budgetTracker = new BudgetTracker();
+        this.pendingAlerts = new ArrayList<>();
+        this.operationsView = new OperationListView();
+        this.budgetsView = Collections.unmodifiableMap(budgets);
+        this.amountByCategory = new long[16];
+        this.countByCategory = new int[16];
+        this.minByCategory = new long[16];
+        this.maxByCategory = new long[16];
     }
     
+    // Возвращает единственный экземпляр категории в этом кошельке
+    public Category getCategory(String name, OperationType type) {
+        return categories.get(categories.intern(name, type));
+    }
+    
+    public CategoryRegistry getCategories() { return categories; }
+    public OperationStore getStore() { return store; }
+    public TimeIndex getTimeIndex() { return timeIndex; }
+    
     public void addOperation(Operation operation) {
-        operations.add(operation);
-        if (operation.getCategory().getType() == OperationType.INCOME) {
-            balance += operation.getAmount();
+        long started = ADD_OPERATION_TIMER.start();
+        // Сначала запись в журнал: если она не удалась, состояние в памяти не меняется
+        if (journal != null) {
+            try {
+                journal.appendOperation(journalSequence + 1, operation);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            journalSequence++;
+        }
+        
+        appendOperation(operation, true);
+        
+        if (CONSISTENCY_CHECK && !verifyAggregates()) {
+            throw new IllegalStateException("Агрегаты кошелька расходятся с историей операций");
+        }
+        ADD_OPERATION_TIMER.stop(started);
+    }
+    
+    // Массовое добавление: пачка пишется в журнал одной группой с одним fsync, а пороги бюджета
+    // проверяются один раз на категорию после всей пачки, а не после каждой строки
+    public void addOperations(OperationBatch batch) {
+        if (batch.size() == 0) {
+            return;
+        }
+        long started = ADD_BATCH_TIMER.start();
+        if (journal != null) {
+            try {
+                journal.appendBatch(journalSequence + 1, batch);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            journalSequence += batch.size();
+        }
+        
+        store.ensureCapacity(store.size() + batch.size());
+        BitSet touchedExpenses = new BitSet();
+        for (int i = 0; i < batch.size(); i++) {
+            int categoryId = categories.intern(batch.getCategory(i));
+            if (storeOperation(batch.getAmount(i), batch.getTimestamp(i), categoryId) == OperationType.EXPENSE) {
+                touchedExpenses.set(categoryId);
+            }
+        }
+        for (int id = touchedExpenses.nextSetBit(0); id >= 0; id = touchedExpenses.nextSetBit(id + 1)) {
+            BUDGET_CHECKS.increment();
+            int threshold = budgetTracker.onSpent(id, amountAt(id));
+            if (threshold > 0) {
+                addBudgetAlert(id, threshold);
+            }
+        }
+        
+        if (CONSISTENCY_CHECK && !verifyAggregates()) {
+            throw new IllegalStateException("Агрегаты кошелька расходятся с историей операций");
+        }
+        ADD_BATCH_TIMER.stop(started);
+    }
+    
+    private void appendOperation(Operation operation, boolean notify) {
+        appendOperation(operation.getAmount(),
+                operation.getDate().getTime(),
+                categories.intern(operation.getCategory()),
+                notify);
+    }
+    
+    private void appendOperation(long amount, long timestamp, int categoryId, boolean notify) {
+        OperationType type = storeOperation(amount, timestamp, categoryId);
+        
+        // Пороги бюджета проверяются по счетчику расходов категории, без обхода истории
+        if (type == OperationType.EXPENSE) {
+            if (notify) {
+                BUDGET_CHECKS.increment();
+            }
+            int threshold = budgetTracker.onSpent(categoryId, amountAt(categoryId));
+            if (threshold > 0 && notify) {
+                addBudgetAlert(categoryId, threshold);
+            }
+        }
+    }
+    
+    private OperationType storeOperation(long amount, long timestamp, int categoryId) {
+        OperationType type = categories.get(categoryId).getType();
+        store.add(amount, timestamp, categoryId, type);
+        timeIndex.add(store.size() - 1);
+        postings.add(categoryId, store.size() - 1);
+        applyToAggregates(categoryId, type, amount);
+        reports.onOperation(categoryId);
+        return type;
+    }
+    
+    private void addBudgetAlert(int categoryId, int threshold) {
+        BUDGET_ALERTS.increment();
+        pendingAlerts.add(new BudgetAlert(categories.get(categoryId),
+                budgetTracker.getLimit(categoryId),
+                amountAt(categoryId),
+                threshold));
+    }
+    
+    private void applyToAggregates(int categoryId, OperationType type, long amount) {
+        if (categoryId >= amountByCategory.length) {
+            int capacity = Math.max(categoryId + 1, amountByCategory.length * 2);
+            amountByCategory = Arrays.copyOf(amountByCategory, capacity);
+            countByCategory = Arrays.copyOf(countByCategory, capacity);
+            minByCategory = Arrays.copyOf(minByCategory, capacity);
+            maxByCategory = Arrays.copyOf(maxByCategory, capacity);
+        }
+        // Операции только добавляются, поэтому минимум и максимум тоже поддерживаются инкрементально
+        if (countByCategory[categoryId] == 0 || amount < minByCategory[categoryId]) {
+            minByCategory[categoryId] = amount;
+        }
+        if (countByCategory[categoryId] == 0 || amount > maxByCategory[categoryId]) {
+            maxByCategory[categoryId] = amount;
+        }
+        amountByCategory[categoryId] += amount;
+        countByCategory[categoryId]++;
+        
+        if (type == OperationType.INCOME) {
+            totalIncome += amount;
         } else {
-            balance -= operation.getAmount();
+            totalExpenses += amount;
         }
     }
     
     public void setBudget(Budget budget) {
-        budgets.put(budget.getCategory(), budget);
+        if (journal != null) {
+            try {
+                journal.appendBudget(journalSequence + 1, budget);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            journalSequence++;
+        }
+        
+        putBudget(budget, true);
     }
     
-    public List<Operation> getOperations() { return new ArrayList<>(operations); }
-    public Map<Category, Budget> getBudgets() { return new HashMap<>(budgets); }
-    public double getBalance() { return balance; }
+    private void putBudget(Budget budget, boolean notify) {
+        int categoryId = categories.intern(budget.getCategory());
+        budgets.put(categories.get(categoryId), budget);
+        reports.onBudget(categoryId);
+        int threshold = budgetTracker.setLimit(categoryId,
+                budget.getLimit(), amountAt(categoryId));
+        if (threshold > 0 && notify) {
+            addBudgetAlert(categoryId, threshold);
+        }
+    }
     
-    public double getTotalIncome() {
-        return operations.stream()
-                .filter(op -> op.getCategory().getType() == OperationType.INCOME)
-                .mapToDouble(Operation::getAmount)
-                .sum();
+    public Budget getBudget(Category category) {
+        return budgets.get(category);
     }
     
-    public double getTotalExpenses() {
-        return operations.stream()
-                .filter(op -> op.getCategory().getType() == OperationType.EXPENSE)
-                .mapToDouble(Operation::getAmount)
-                .sum();
+    // Сумма расходов по категории: одно обращение к счетчику
+    public long getSpent(Category category) {
+        int categoryId = categories.find(category.getName(), category.getType());
+        return categoryId < 0 ? 0 : amountAt(categoryId);
     }
     
-    public Map<Category, Double> getIncomeByCategory() {
-        return operations.stream()
-                .filter(op -> op.getCategory().getType() == OperationType.INCOME)
-                .collect(Collectors.groupingBy(
-                    Operation::getCategory,
-                    Collectors.summingDouble(Operation::getAmount)
-                ));
+    public boolean isBudgetExceeded(Category category) {
+        int categoryId = categories.find(category.getName(), category.getType());
+        return categoryId >= 0 && budgetTracker.isExceeded(categoryId, amountAt(categoryId));
     }
     
-    public Map<Category, Double> getExpensesByCategory() {
-        return operations.stream()
-                .filter(op -> op.getCategory().getType() == OperationType.EXPENSE)
-                .collect(Collectors.groupingBy(
-                    Operation::getCategory,
-                    Collectors.summingDouble(Operation::getAmount)
-                ));
+    // Возвращает оповещения о пройденных порогах бюджета, накопленные с прошлого вызова
+    public List<BudgetAlert> pollBudgetAlerts() {
+        if (pendingAlerts.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<BudgetAlert> alerts = pendingAlerts;
+        pendingAlerts = new ArrayList<>();
+        return alerts;
     }
     
-    public Map<String, Double> calculateByCategories(List<String> categoryNames, OperationType type) {
-        Map<String, Double> result = new HashMap<>();
-        Set<String> foundCategories = new HashSet<>();
-        Set<String> unknownCategories = new HashSet<>(categoryNames);
-        
-        for (Operation op : operations) {
-            if (op.getCategory().getType() == type) {
-                String currentCategoryName = op.getCategory().getName();
-                if (categoryNames.contains(currentCategoryName)) {
-                    result.merge(currentCategoryName, op.getAmount(), Double::sum);
-                    foundCategories.add(currentCategoryName);
-                    unknownCategories.remove(currentCategoryName);
-                }
+    public void attachJournal(OperationJournal journal) { this.journal = journal; }
+    public OperationJournal getJournal() { return journal; }
+    
+    long getJournalSequence() { return journalSequence; }
+    void setJournalSequence(long journalSequence) { this.journalSequence = journalSequence; }
+    long getTransferSequence() { return transferSequence; }
+    void setTransferSequence(long transferSequence) { this.transferSequence = transferSequence; }
+    
+    // Операции переводов хранятся только в журнале переводов, поэтому в журнал кошелька не пишутся
+    void applyTransfer(long transferId, Operation operation, boolean notify) {
+        if (transferId > transferSequence) {
+            appendOperation(operation, notify);
+            transferSequence = transferId;
+            
+            if (CONSISTENCY_CHECK && notify && !verifyAggregates()) {
+                throw new IllegalStateException("Агрегаты кошелька расходятся с историей операций");
             }
         }
+    }
+    
+    // Применение записей журнала при восстановлении: уже учтенные снимком записи пропускаются
+    void restoreOperation(long sequence, Operation operation) {
+        if (sequence > journalSequence) {
+            restoreOperation(operation);
+            journalSequence = sequence;
+        }
+    }
+    
+    void restoreBudget(long sequence, Budget budget) {
+        if (sequence > journalSequence) {
+            restoreBudget(budget);
+            journalSequence = sequence;
+        }
+    }
+    
+    // Загрузка из снимка: без записи в журнал и без проверки согласованности на каждом шаге
+    void restoreOperation(Operation operation) {
+        appendOperation(operation, false);
+    }
+    
+    void restoreOperation(long amount, long timestamp, int categoryId) {
+        appendOperation(amount, timestamp, categoryId, false);
+    }
+    
+    void restoreBudget(Budget budget) {
+        putBudget(budget, false);
+    }
+    
+    // Представления только для чтения, отражающие текущее состояние кошелька без копирования
+    public List<Operation> getOperations() { return operationsView; }
+    public Map<Category, Budget> getBudgets() { return budgetsView; }
+    
+    public int getOperationCount() { return store.size(); }
+    
+    // Примерный объем кошелька в памяти для кэша кошельков: на операцию приходятся колонки хранилища (21 байт),
+    // позиция в списке категории (4 байта) и запас на рост массивов; индекс времени с суммами по дням
+    // и месяцам оценивается отдельно - его массивы растут с числом категорий
+    public long estimateMemory() {
+        return 4096 + 64L * categories.size() + 40L * store.size() + timeIndex.estimateMemory();
+    }
+    
+    // Страница истории: не более limit операций начиная с позиции from
+    public List<Operation> operations(int from, int limit) {
+        int size = store.size();
+        int start = Math.min(Math.max(from, 0), size);
+        int end = (int) Math.min((long) start + Math.max(limit, 0), size);
+        return operationsView.subList(start, end);
+    }
+    
+    public void forEachOperation(OperationVisitor visitor) {
+        forEachOperation(0, Integer.MAX_VALUE, visitor);
+    }
+    
+    // Обход страницы истории; возвращает позицию, с которой продолжать (курсор), или -1 в конце
+    public int forEachOperation(int from, int limit, OperationVisitor visitor) {
+        int size = store.size();
+        int start = Math.min(Math.max(from, 0), size);
+        int end = (int) Math.min((long) start + Math.max(limit, 0), size);
+        for (int i = start; i < end; i++) {
+            visitor.visit(categories.get(store.getCategoryId(i)),
+                    store.getAmount(i),
+                    store.getTimestamp(i));
+        }
+        return end < size ? end : -1;
+    }
+    
+    // Обход страницы операций одной категории по ее списку позиций: from и курсор - номера внутри категории
+    public int forEachOperation(Category category, int from, int limit, OperationVisitor visitor) {
+        int categoryId = categories.find(category.getName(), category.getType());
+        int size = postings.size(categoryId);
+        int start = Math.min(Math.max(from, 0), size);
+        int end = (int) Math.min((long) start + Math.max(limit, 0), size);
+        int[] positions = postings.positions(categoryId);
+        Category shared = start < end ? categories.get(categoryId) : null;
+        for (int i = start; i < end; i++) {
+            visitor.visit(shared, store.getAmount(positions[i]), store.getTimestamp(positions[i]));
+        }
+        return end < size ? end : -1;
+    }
+    
+    public int getOperationCount(Category category) {
+        return countAt(categories.find(category.getName(), category.getType()));
+    }
+    
+    // Категории кошелька с операциями, имя которых начинается с prefix без учета регистра, по алфавиту
+    public List<Category> findCategories(String prefix) {
+        List<Category> result = new ArrayList<>();
+        for (int id : categories.search(prefix)) {
+            if (countAt(id) > 0) {
+                result.add(categories.get(id));
+            }
+        }
+        return result;
+    }
+    
+    // Все суммы кошелька - в копейках
+    public long getBalance() { return totalIncome - totalExpenses; }
+    
+    public long getTotalIncome() { return totalIncome; }
+    public long getTotalExpenses() { return totalExpenses; }
+    
+    // Отчет за все время из кэша отчетов: пересобирается, только если кошелек изменился после прошлого запроса
+    public WalletReport getReport(MoneyFormat format) {
+        return reports.get(format);
+    }
+    
+    public Map<Category, Long> getIncomeByCategory() { return sumsByCategory(OperationType.INCOME); }
+    public Map<Category, Long> getExpensesByCategory() { return sumsByCategory(OperationType.EXPENSE); }
+    
+    private Map<Category, Long> sumsByCategory(OperationType type) {
+        Map<Category, Long> result = new HashMap<>();
+        for (int id = 0; id < categories.size(); id++) {
+            Category category = categories.get(id);
+            if (category.getType() == type && countAt(id) > 0) {
+                result.put(category, amountByCategory[id]);
+            }
+        }
+        return result;
+    }
+    
+    // Операции с датой в интервале [from, to) в порядке времени
+    public List<Operation> getOperations(Date from, Date to) {
+        List<Operation> result = new ArrayList<>(timeIndex.countInRange(from.getTime(), to.getTime()));
+        timeIndex.forEachInRange(from.getTime(), to.getTime(), position -> result.add(operationAt(position)));
+        return result;
+    }
+    
+    public long getBalanceAt(Date date) {
+        return timeIndex.balanceAt(date.getTime());
+    }
+    
+    public Map<Category, Long> getIncomeByCategory(Date from, Date to) {
+        return toCategoryMap(timeIndex.sumsInRange(from.getTime(), to.getTime()), OperationType.INCOME);
+    }
+    
+    public Map<Category, Long> getExpensesByCategory(Date from, Date to) {
+        return toCategoryMap(timeIndex.sumsInRange(from.getTime(), to.getTime()), OperationType.EXPENSE);
+    }
+    
+    public Map<Category, Long> getIncomeByCategory(YearMonth month) {
+        return toCategoryMap(timeIndex.sumsForMonth(month), OperationType.INCOME);
+    }
+    
+    public Map<Category, Long> getExpensesByCategory(YearMonth month) {
+        return toCategoryMap(timeIndex.sumsForMonth(month), OperationType.EXPENSE);
+    }
+    
+    private Map<Category, Long> toCategoryMap(long[] sums, OperationType type) {
+        Map<Category, Long> result = new HashMap<>();
+        for (int id = 0; id < sums.length; id++) {
+            Category category = categories.get(id);
+            if (sums[id] != 0 && category.getType() == type) {
+                result.put(category, sums[id]);
+            }
+        }
+        return result;
+    }
+    
+    private int countAt(int categoryId) {
+        return categoryId >= 0 && categoryId < countByCategory.length ? countByCategory[categoryId] : 0;
+    }
+    
+    private long amountAt(int categoryId) {
+        return categoryId < amountByCategory.length ? amountByCategory[categoryId] : 0;
+    }
+    
+    long getCategoryAmount(int categoryId) {
+        return amountAt(categoryId);
+    }
+    
+    Operation operationAt(int index) {
+        return new Operation(categories.get(store.getCategoryId(index)),
+                store.getAmount(index),
+                new Date(store.getTimestamp(index)));
+    }
+    
+    // Легковесное представление истории: объекты Operation создаются только при обращении к элементу
+    private class OperationListView extends AbstractList<Operation> implements RandomAccess {
+        @Override
+        public Operation get(int index) {
+            return operationAt(index);
+        }
         
-        // Добавляем нулевые значения для найденных категорий, которые не имеют операций
-        for (String categoryName : categoryNames) {
-            if (foundCategories.contains(categoryName) && !result.containsKey(categoryName)) {
-                result.put(categoryName, 0.0);
+        @Override
+        public int size() {
+            return store.size();
+        }
+    }
+    
+    // Полный пересчет агрегатов по сырой истории операций
+    public void rebuildAggregates() {
+        CategoryTotals totals = recomputeTotals();
+        totalIncome = 0;
+        totalExpenses = 0;
+        amountByCategory = new long[Math.max(16, categories.size())];
+        countByCategory = new int[amountByCategory.length];
+        minByCategory = new long[amountByCategory.length];
+        maxByCategory = new long[amountByCategory.length];
+        for (int id = 0; id < totals.size(); id++) {
+            amountByCategory[id] = totals.getSum(id);
+            countByCategory[id] = totals.getCount(id);
+            minByCategory[id] = totals.getMin(id);
+            maxByCategory[id] = totals.getMax(id);
+            if (categories.get(id).getType() == OperationType.INCOME) {
+                totalIncome += totals.getSum(id);
+            } else {
+                totalExpenses += totals.getSum(id);
             }
         }
+        budgets.values().forEach(budget -> putBudget(budget, false));
+        reports.invalidate();
+    }
+    
+    // Сверяет инкрементальное состояние с пересчетом из истории
+    public boolean verifyAggregates() {
+        CategoryTotals totals = recomputeTotals();
+        long expectedIncome = 0;
+        long expectedExpenses = 0;
+        for (int id = 0; id < totals.size(); id++) {
+            if (totals.getSum(id) != amountAt(id) || totals.getCount(id) != countAt(id)) {
+                return false;
+            }
+            if (totals.getCount(id) > 0
+                    && (totals.getMin(id) != minByCategory[id] || totals.getMax(id) != maxByCategory[id])) {
+                return false;
+            }
+            if (categories.get(id).getType() == OperationType.INCOME) {
+                expectedIncome += totals.getSum(id);
+            } else {
+                expectedExpenses += totals.getSum(id);
+            }
+        }
+        return expectedIncome == totalIncome && expectedExpenses == totalExpenses;
+    }
+    
+    // Пересчет итогов по всем категориям из сырой истории; на больших кошельках - параллельно
+    private CategoryTotals recomputeTotals() {
+        return new OperationAggregator(store, null, categories.size()).aggregate(null, 0, store.size());
+    }
+    
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("operations", new ArrayList<>(operationsView));
+        fields.put("budgets", new HashMap<>(budgets));
+        fields.put("balance", Money.toDouble(getBalance()));
+        fields.put("journalSequence", journalSequence);
+        out.writeFields();
+    }
+    
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        List<Operation> savedOperations = (List<Operation>) fields.get("operations", null);
+        Map<Category, Budget> savedBudgets = (Map<Category, Budget>) fields.get("budgets", null);
         
-        return result;
+        init();
+        journalSequence = fields.get("journalSequence", 0L);
+        if (savedOperations != null) {
+            store.ensureCapacity(savedOperations.size());
+            savedOperations.forEach(this::restoreOperation);
+        }
+        if (savedBudgets != null) {
+            savedBudgets.values().forEach(this::restoreBudget);
+        }
     }
     
-    public Set<String> getUnknownCategories(List<String> categoryNames, OperationType type) {
-        Set<String> unknownCategories = new HashSet<>(categoryNames);
+    // Выполняет запрос за один проход: без фильтров по периоду и сумме - только по счетчикам категорий,
+    // с периодом - по индексу времени, иначе одним обходом хранилища (на больших объемах - параллельно)
+    public QueryResult query(OperationQuery query) {
+        long started = QUERY_TIMER.start();
+        try {
+            return runQuery(query);
+        } finally {
+            QUERY_TIMER.stop(started);
+        }
+    }
+    
+    private QueryResult runQuery(OperationQuery query) {
+        // Имена переводятся в номера категорий один раз, дальше сравниваются только номера
+        int[] slotById = new int[categories.size()];
+        Arrays.fill(slotById, -1);
+        List<Category> requested = new ArrayList<>();
+        Set<String> unknownCategories = new LinkedHashSet<>();
         
-        for (Operation op : operations) {
-            if (op.getCategory().getType() == type) {
-                String currentCategoryName = op.getCategory().getName();
-                unknownCategories.remove(currentCategoryName);
+        if (query.getCategoryNames().isEmpty()) {
+            for (int id = 0; id < categories.size(); id++) {
+                if (countAt(id) > 0 && query.matchesType(categories.get(id).getType())) {
+                    slotById[id] = requested.size();
+                    requested.add(categories.get(id));
+                }
+            }
+        }
+        for (String name : query.getCategoryNames()) {
+            boolean known = false;
+            for (OperationType type : OperationType.values()) {
+                int id = query.matchesType(type) ? categories.find(name, type) : -1;
+                if (id >= 0 && countAt(id) > 0) {
+                    known = true;
+                    if (slotById[id] < 0) {
+                        slotById[id] = requested.size();
+                        requested.add(categories.get(id));
+                    }
+                }
+            }
+            if (!known) {
+                unknownCategories.add(name);
             }
         }
         
-        return unknownCategories;
+        int slots = requested.size();
+        CategoryTotals totals;
+        if (!query.hasPeriod() && !query.hasAmountRange()) {
+            totals = new CategoryTotals(slots);
+            for (int slot = 0; slot < slots; slot++) {
+                int id = categories.intern(requested.get(slot));
+                totals.set(slot, amountAt(id), countAt(id), minByCategory[id], maxByCategory[id]);
+            }
+        } else {
+            OperationAggregator aggregator = new OperationAggregator(store, slotById, slots)
+                    .amountBetween(query.getMinAmount(), query.getMaxAmount());
+            if (slots == 0) {
+                totals = new CategoryTotals(0);
+            } else if (query.hasPeriod()) {
+                int[] bounds = timeIndex.rangeBounds(query.getFrom(), query.getTo());
+                totals = aggregator.aggregate(timeIndex.orderedPositions(), bounds[0], bounds[1]);
+            } else {
+                totals = aggregator.aggregate(null, 0, store.size());
+            }
+        }
+        
+        Map<Category, CategoryStats> stats = new LinkedHashMap<>();
+        for (int slot = 0; slot < slots; slot++) {
+            Category category = requested.get(slot);
+            stats.put(category, new CategoryStats(category, totals.getSum(slot), totals.getCount(slot),
+                    totals.getMin(slot), totals.getMax(slot)));
+        }
+        return new QueryResult(stats, unknownCategories);
+    }
+    
+    public Map<String, Long> calculateByCategories(List<String> categoryNames, OperationType type) {
+        QueryResult result = query(new OperationQuery().categories(categoryNames).type(type));
+        Map<String, Long> sums = new HashMap<>();
+        result.getStats().forEach((category, categoryStats) -> sums.put(category.getName(), categoryStats.getSum()));
+        return sums;
+    }
+    
+    public Set<String> getUnknownCategories(List<String> categoryNames, OperationType type) {
+        return new HashSet<>(query(new OperationQuery().categories(categoryNames).type(type)).getUnknownCategories());
     }
     
+    // Слияние списков позиций дохода и расхода с этим именем: порядок добавления сохраняется, история не обходится
     public List<Operation> getOperationsByCategory(String categoryName) {
-        return operations.stream()
-                .filter(op -> op.getCategory().getName().equals(categoryName))
-                .collect(Collectors.toList());
+        int incomeId = categories.find(categoryName, OperationType.INCOME);
+        int expenseId = categories.find(categoryName, OperationType.EXPENSE);
+        int[] income = postings.positions(incomeId);
+        int[] expenses = postings.positions(expenseId);
+        int incomeCount = postings.size(incomeId);
+        int expenseCount = postings.size(expenseId);
+        List<Operation> result = new ArrayList<>(incomeCount + expenseCount);
+        int i = 0;
+        int j = 0;
+        while (i < incomeCount || j < expenseCount) {
+            if (j == expenseCount || (i < incomeCount && income[i] < expenses[j])) {
+                result.add(operationAt(income[i++]));
+            } else {
+                result.add(operationAt(expenses[j++]));
+            }
+        }
+        return result;
     }
 }
\ No newline at end of file
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Учет загруженных кошельков в порядке последнего обращения (LRU) и их примерного объема в памяти.
+// Сам кэш кошельки не выгружает: он только выбирает кандидатов, а выгрузку под блокировкой пользователя делает FinanceService
+public class WalletCache {
+    // Бюджет памяти на все загруженные кошельки, в байтах; задается -Dfinance.walletCacheBytes
+    public static final long DEFAULT_MEMORY_BUDGET = Long.getLong("finance.walletCacheBytes", 256L << 20);
+    
+    private final long memoryBudget;
+    // Порядок доступа: первым идет кошелек, к которому дольше всего не обращались
+    private final LinkedHashMap<User, Long> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private long residentBytes;
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public WalletCache(long memoryBudget) {
+        this.memoryBudget = memoryBudget;
+    }
+    
+    public long getMemoryBudget() { return memoryBudget; }
+    
+    public void recordHit() { hits.increment(); }
+    public void recordMiss() { misses.increment(); }
+    public void recordEviction() { evictions.increment(); }
+    
+    // Отмечает обращение к загруженному кошельку и обновляет оценку его объема
+    public synchronized void touch(User user, long bytes) {
+        Long previous = resident.put(user, bytes);
+        residentBytes += bytes - (previous == null ? 0 : previous);
+    }
+    
+    public synchronized void remove(User user) {
+        Long bytes = resident.remove(user);
+        if (bytes != null) {
+            residentBytes -= bytes;
+        }
+    }
+    
+    // Кандидаты на выгрузку от самых старых, пока их объем не вернет кэш в бюджет; keep не выгружается
+    public synchronized List<User> evictionCandidates(User keep) {
+        List<User> candidates = new ArrayList<>();
+        long excess = residentBytes - memoryBudget;
+        Iterator<Map.Entry<User, Long>> iterator = resident.entrySet().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            Map.Entry<User, Long> entry = iterator.next();
+            if (entry.getKey() != keep) {
+                candidates.add(entry.getKey());
+                excess -= entry.getValue();
+            }
+        }
+        return candidates;
+    }
+    
+    public synchronized boolean isOverBudget() {
+        return residentBytes > memoryBudget;
+    }
+    
+    public synchronized int getResidentCount() { return resident.size(); }
+    public synchronized long getResidentBytes() { return residentBytes; }
+    public long getHits() { return hits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    
+    @Override
+    public String toString() {
+        return String.format("WalletCache{resident=%d, bytes=%d/%d, hits=%d, misses=%d, evictions=%d}",
+                getResidentCount(), getResidentBytes(), memoryBudget, getHits(), getMisses(), getEvictions());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,62 @@
+// Изменение кошелька в потоке событий. Экземпляры - ячейки кольцевого буфера WalletEventStream и переиспользуются:
+// подписчик читает событие только внутри onEvent и не сохраняет ссылку на него, а копирует нужные поля
+public final class WalletEvent {
+    // Баланс неизвестен: перевод получателю, чей кошелек не загружен, применится к нему при загрузке
+    public static final long UNKNOWN_BALANCE = Long.MIN_VALUE;
+    
+    public enum Type {
+        OPERATION_ADDED,
+        BUDGET_SET,
+        TRANSFER_APPLIED,
+        TRANSFER_RECEIVED,
+        BUDGET_ALERT
+    }
+    
+    // Записывается последним: подписчик видит ячейку готовой, когда в ней его номер, и тогда видит и остальные поля
+    private volatile long sequence = -1;
+    private Type type;
+    private long timestamp;
+    private String login;
+    // Другой участник перевода: получатель для TRANSFER_APPLIED, отправитель для TRANSFER_RECEIVED; иначе null
+    private String counterparty;
+    private Category category;
+    // Суммы в копейках: сумма операции или перевода, лимит бюджета, для оповещения - потрачено
+    private long amount;
+    private long limit;
+    private int thresholdPercent;
+    // Баланс кошелька сразу после изменения
+    private long balance;
+    
+    void set(long sequence, Type type, String login, String counterparty, Category category,
+             long amount, long limit, int thresholdPercent, long balance) {
+        this.type = type;
+        this.timestamp = System.currentTimeMillis();
+        this.login = login;
+        this.counterparty = counterparty;
+        this.category = category;
+        this.amount = amount;
+        this.limit = limit;
+        this.thresholdPercent = thresholdPercent;
+        this.balance = balance;
+        this.sequence = sequence;
+    }
+    
+    public long getSequence() { return sequence; }
+    public Type getType() { return type; }
+    public long getTimestamp() { return timestamp; }
+    public String getLogin() { return login; }
+    public String getCounterparty() { return counterparty; }
+    public Category getCategory() { return category; }
+    public long getAmount() { return amount; }
+    public long getLimit() { return limit; }
+    public int getThresholdPercent() { return thresholdPercent; }
+    public long getBalance() { return balance; }
+    public boolean isBalanceKnown() { return balance != UNKNOWN_BALANCE; }
+    
+    @Override
+    public String toString() {
+        return String.format("WalletEvent{#%d %s, login=%s, category=%s, amount=%s, balance=%s}",
+                sequence, type, login, category == null ? counterparty : category.getName(),
+                Money.toDecimal(amount), isBalanceKnown() ? Money.toDecimal(balance) : "?");
+    }
+}
\ No newline at end of file
@@ -0,0 +1,244 @@
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+// Поток изменений кошельков: кольцевой буфер заранее созданных событий и подписчики, каждый в своем потоке
+// со своей позицией чтения. Публикация - запись в ячейку, поэтому ее цена не зависит от числа подписчиков.
+// Номера событий резервируются под блокировкой кошелька (события одного кошелька идут в порядке изменений),
+// а ячейки заполняются после ее снятия. Если самый медленный подписчик отстал на весь буфер, публикующий поток
+// ждет его (обратное давление), а не теряет события, но блокировок кошельков при этом не держит.
+// Подписчики не должны сами изменять кошельки: ожидание места в буфере, который читают они же, не закончится
+public final class WalletEventStream {
+    // Размер буфера в событиях (округляется вверх до степени двойки); задается -Dfinance.eventBuffer
+    public static final int DEFAULT_CAPACITY = Integer.getInteger("finance.eventBuffer", 1 << 14);
+    // Простаивающий подписчик сам проверяет буфер с этим периодом: публикация не будит потоки на каждое событие,
+    // иначе ее цена росла бы с числом подписчиков. Задержка доставки - не больше периода
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    
+    private static final Metrics.Counter PUBLISHED = Metrics.counter("finance_events_published_total",
+            "События изменений кошельков, опубликованные для подписчиков");
+    private static final Metrics.Counter BLOCKED = Metrics.counter("finance_events_publish_blocked_total",
+            "Публикации, ждавшие места в буфере из-за отставшего подписчика");
+    private static final Metrics.Counter FAILED = Metrics.counter("finance_events_subscriber_errors_total",
+            "Ошибки подписчиков при обработке событий");
+    
+    public interface Subscriber {
+        void onEvent(WalletEvent event);
+        
+        // Вызывается, когда подписчик догнал поток: удобное место, чтобы сбросить накопленное (например, буфер файла)
+        default void onCaughtUp() {
+        }
+    }
+    
+    private final WalletEvent[] ring;
+    private final int mask;
+    private final int wakeMask;
+    private final Object publishLock = new Object();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    // Номер следующего события; меняется только под publishLock
+    private long next;
+    // Последний зарезервированный номер; ячейка готова к чтению, когда в ней записан ее номер
+    private volatile long reserved = -1;
+    private volatile boolean closed;
+    
+    public WalletEventStream(int capacity) {
+        int size = capacity <= 2 ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+        this.ring = new WalletEvent[size];
+        this.mask = size - 1;
+        this.wakeMask = Math.max(1, size / 4) - 1;
+        for (int i = 0; i < size; i++) {
+            ring[i] = new WalletEvent();
+        }
+        Metrics.gauge("finance_events_lag", "Отставание самого медленного подписчика, событий", this::getLag);
+    }
+    
+    private final class Subscription implements Runnable {
+        final Subscriber subscriber;
+        final Thread thread;
+        // Номер последнего обработанного события
+        volatile long cursor;
+        volatile boolean parked;
+        volatile boolean running = true;
+        
+        Subscription(String name, Subscriber subscriber, long cursor) {
+            this.subscriber = subscriber;
+            this.cursor = cursor;
+            this.thread = new Thread(this, "events-" + name);
+            thread.setDaemon(true);
+        }
+        
+        @Override
+        public void run() {
+            try {
+                deliver();
+            } finally {
+                // Остановившийся поток больше не сдвигает позицию: без этого публикатор ждал бы его вечно
+                subscriptions.remove(this);
+            }
+        }
+        
+        private void deliver() {
+            boolean processed = false;
+            while (true) {
+                // Номера заполняются не по порядку: чтение останавливается на первой еще не записанной ячейке
+                long sequence = cursor + 1;
+                if (isReady(sequence)) {
+                    for (; isReady(sequence); sequence++) {
+                        try {
+                            subscriber.onEvent(ring[(int) sequence & mask]);
+                        } catch (Throwable e) {
+                            FAILED.increment();
+                        }
+                        // Позиция сдвигается после каждого события, чтобы ждущий публикатор получил место сразу
+                        cursor = sequence;
+                    }
+                    processed = true;
+                    continue;
+                }
+                if (processed) {
+                    try {
+                        subscriber.onCaughtUp();
+                    } catch (Throwable e) {
+                        FAILED.increment();
+                    }
+                    processed = false;
+                }
+                // При закрытии поток выходит, только дочитав все опубликованное
+                if (!running) {
+                    return;
+                }
+                parked = true;
+                if (!isReady(cursor + 1) && running) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                parked = false;
+            }
+        }
+    }
+    
+    // Подписчик получает события, опубликованные после подписки, в порядке публикации
+    public void subscribe(String name, Subscriber subscriber) {
+        Subscription subscription;
+        synchronized (publishLock) {
+            subscription = new Subscription(name, subscriber, next - 1);
+            subscriptions.add(subscription);
+        }
+        subscription.thread.start();
+    }
+    
+    // Резервирует count номеров подряд и возвращает первый; вызывается под блокировкой кошелька, а события
+    // публикуются по этим номерам после ее снятия. Каждый зарезервированный номер обязательно публикуется:
+    // иначе подписчики остановятся на пустой ячейке. Без подписчиков возвращает -1, и публикация ничего не делает
+    public long reserve(int count) {
+        // Без подписчиков публиковать некому: изменение кошелька не платит за поток событий
+        if (closed || subscriptions.isEmpty() || count == 0) {
+            return -1;
+        }
+        synchronized (publishLock) {
+            long first = next;
+            next += count;
+            reserved = next - 1;
+            return first;
+        }
+    }
+    
+    // Методы публикации принимают зарезервированный номер и возвращают номер для следующего события
+    public long publishOperation(long sequence, String login, Category category, long amount, long balance) {
+        return publish(sequence, WalletEvent.Type.OPERATION_ADDED, login, null, category, amount, 0, 0, balance);
+    }
+    
+    public long publishBudget(long sequence, String login, Category category, long limit, long balance) {
+        return publish(sequence, WalletEvent.Type.BUDGET_SET, login, null, category, limit, limit, 0, balance);
+    }
+    
+    public long publishTransfer(long sequence, String login, String recipient, long amount, long balance) {
+        return publish(sequence, WalletEvent.Type.TRANSFER_APPLIED, login, recipient, null, amount, 0, 0, balance);
+    }
+    
+    // balance - WalletEvent.UNKNOWN_BALANCE, если кошелек получателя не загружен
+    public long publishTransferReceived(long sequence, String login, String sender, long amount, long balance) {
+        return publish(sequence, WalletEvent.Type.TRANSFER_RECEIVED, login, sender, null, amount, 0, 0, balance);
+    }
+    
+    public long publishAlerts(long sequence, String login, List<BudgetAlert> alerts, long balance) {
+        for (BudgetAlert alert : alerts) {
+            sequence = publish(sequence, WalletEvent.Type.BUDGET_ALERT, login, null, alert.getCategory(),
+                    alert.getSpent(), alert.getLimit(), alert.getThresholdPercent(), balance);
+        }
+        return sequence;
+    }
+    
+    private long publish(long sequence, WalletEvent.Type type, String login, String counterparty, Category category,
+                         long amount, long limit, int thresholdPercent, long balance) {
+        if (sequence < 0) {
+            return sequence;
+        }
+        awaitCapacity(sequence);
+        ring[(int) sequence & mask].set(sequence, type, login, counterparty, category,
+                amount, limit, thresholdPercent, balance);
+        PUBLISHED.increment();
+        // Раз в четверть буфера спящие подписчики будятся сразу, чтобы всплеск событий не упирался в буфер
+        if ((sequence & wakeMask) == 0) {
+            for (Subscription subscription : subscriptions) {
+                if (subscription.parked) {
+                    LockSupport.unpark(subscription.thread);
+                }
+            }
+        }
+        return sequence + 1;
+    }
+    
+    private boolean isReady(long sequence) {
+        return ring[(int) sequence & mask].getSequence() == sequence;
+    }
+    
+    // Ячейка свободна, когда все подписчики прочитали событие, записанное в нее кругом раньше
+    private void awaitCapacity(long sequence) {
+        long wrapPoint = sequence - ring.length;
+        if (minCursor() >= wrapPoint) {
+            return;
+        }
+        BLOCKED.increment();
+        for (Subscription subscription : subscriptions) {
+            LockSupport.unpark(subscription.thread);
+        }
+        while (minCursor() < wrapPoint) {
+            LockSupport.parkNanos(this, FULL_PARK_NANOS);
+        }
+    }
+    
+    private long minCursor() {
+        long min = Long.MAX_VALUE;
+        for (Subscription subscription : subscriptions) {
+            min = Math.min(min, subscription.cursor);
+        }
+        return min;
+    }
+    
+    public long getLag() {
+        long min = minCursor();
+        return min == Long.MAX_VALUE ? 0 : reserved - min;
+    }
+    
+    public int getCapacity() { return ring.length; }
+    
+    // Новые события больше не принимаются; подписчики дочитывают опубликованное и останавливаются
+    public void close() {
+        closed = true;
+        for (Subscription subscription : subscriptions) {
+            subscription.running = false;
+            LockSupport.unpark(subscription.thread);
+        }
+        for (Subscription subscription : subscriptions) {
+            try {
+                subscription.thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        subscriptions.clear();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,128 @@
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/*
+ * Бинарный формат снимка кошелька (все числа big-endian):
+ *
+ *   int   магическое число 'FMW1'
+ *   short версия формата
+ *   long  номер последней учтенной записи журнала
+ *   long  номер последнего примененного перевода (с версии 2)
+ *   int   число категорий, затем для каждой: byte тип, short длина, UTF-8 имя
+ *   int   число бюджетов, затем для каждого: int id категории, long лимит в копейках
+ *   int   число операций, затем записи фиксированной длины:
+ *         long сумма в копейках, long время в epoch millis, int id категории
+ *
+ * Операции читаются через MappedByteBuffer окнами по OPERATIONS_PER_WINDOW записей.
+ */
+public class WalletFile {
+    public static final String EXTENSION = ".wallet";
+    
+    private static final int MAGIC = 0x464D5731;
+    private static final short VERSION = 2;
+    private static final int OPERATION_SIZE = 8 + 8 + 4;
+    private static final int OPERATIONS_PER_WINDOW = 1 << 24;
+    
+    private WalletFile() {
+    }
+    
+    public static void write(Wallet wallet, File file) throws IOException {
+        OperationStore operations = wallet.getStore();
+        Map<Category, Budget> budgets = wallet.getBudgets();
+        // Словарь категорий кошелька: каждое имя хранится в файле один раз
+        CategoryRegistry categories = wallet.getCategories();
+        
+        try (FileOutputStream fos = new FileOutputStream(file);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeLong(wallet.getJournalSequence());
+            out.writeLong(wallet.getTransferSequence());
+            
+            out.writeInt(categories.size());
+            for (int id = 0; id < categories.size(); id++) {
+                Category category = categories.get(id);
+                byte[] name = category.getName().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(category.getType().ordinal());
+                out.writeShort(name.length);
+                out.write(name);
+            }
+            
+            out.writeInt(budgets.size());
+            for (Budget budget : budgets.values()) {
+                out.writeInt(categories.intern(budget.getCategory()));
+                out.writeLong(budget.getLimit());
+            }
+            
+            out.writeInt(operations.size());
+            for (int i = 0; i < operations.size(); i++) {
+                out.writeLong(operations.getAmount(i));
+                out.writeLong(operations.getTimestamp(i));
+                out.writeInt(operations.getCategoryId(i));
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+    }
+    
+    public static Wallet read(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(size, Integer.MAX_VALUE));
+            
+            if (size < 14 || header.getInt() != MAGIC) {
+                throw new IOException("Файл " + file.getName() + " не является снимком кошелька");
+            }
+            short version = header.getShort();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Неподдерживаемая версия формата: " + version);
+            }
+            
+            Wallet wallet = new Wallet();
+            wallet.setJournalSequence(header.getLong());
+            if (version >= 2) {
+                wallet.setTransferSequence(header.getLong());
+            }
+            
+            // Номера категорий файла переводятся в номера словаря кошелька
+            int[] categoryIds = new int[header.getInt()];
+            OperationType[] types = OperationType.values();
+            for (int i = 0; i < categoryIds.length; i++) {
+                OperationType type = types[header.get()];
+                byte[] name = new byte[header.getShort() & 0xFFFF];
+                header.get(name);
+                categoryIds[i] = wallet.getCategories().intern(new String(name, StandardCharsets.UTF_8), type);
+            }
+            
+            int budgetCount = header.getInt();
+            for (int i = 0; i < budgetCount; i++) {
+                Category category = wallet.getCategories().get(categoryIds[header.getInt()]);
+                wallet.restoreBudget(new Budget(category, header.getLong()));
+            }
+            
+            int operationCount = header.getInt();
+            long position = header.position();
+            if (position + (long) operationCount * OPERATION_SIZE > size) {
+                throw new IOException("Снимок кошелька " + file.getName() + " поврежден");
+            }
+            wallet.getStore().ensureCapacity(operationCount);
+            
+            for (int start = 0; start < operationCount; start += OPERATIONS_PER_WINDOW) {
+                int count = Math.min(OPERATIONS_PER_WINDOW, operationCount - start);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position + (long) start * OPERATION_SIZE, (long) count * OPERATION_SIZE);
+                for (int i = 0; i < count; i++) {
+                    int offset = i * OPERATION_SIZE;
+                    wallet.restoreOperation(window.getLong(offset),
+                            window.getLong(offset + 8),
+                            categoryIds[window.getInt(offset + 16)]);
+                }
+            }
+            return wallet;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,77 @@
+import java.util.*;
+
+// Отчет кошелька: итоги, суммы по категориям, бюджеты и готовый текст для консоли.
+// Экземпляр неизменяем, поэтому один отчет можно отдавать нескольким читателям и выводить вне блокировки кошелька
+public class WalletReport {
+    private static final String RULE = "=".repeat(50);
+    
+    private final long totalIncome;
+    private final long totalExpenses;
+    private final Map<Category, Long> incomeByCategory;
+    private final Map<Category, Long> expensesByCategory;
+    private final Map<Category, Budget> budgets;
+    private final String text;
+    
+    WalletReport(long totalIncome, long totalExpenses, Map<Category, Long> incomeByCategory,
+                 Map<Category, Long> expensesByCategory, Map<Category, Budget> budgets, String text) {
+        this.totalIncome = totalIncome;
+        this.totalExpenses = totalExpenses;
+        this.incomeByCategory = Collections.unmodifiableMap(incomeByCategory);
+        this.expensesByCategory = Collections.unmodifiableMap(expensesByCategory);
+        this.budgets = Collections.unmodifiableMap(budgets);
+        this.text = text;
+    }
+    
+    public long getTotalIncome() { return totalIncome; }
+    public long getTotalExpenses() { return totalExpenses; }
+    public long getBalance() { return totalIncome - totalExpenses; }
+    public Map<Category, Long> getIncomeByCategory() { return incomeByCategory; }
+    public Map<Category, Long> getExpensesByCategory() { return expensesByCategory; }
+    public Map<Category, Budget> getBudgets() { return budgets; }
+    public String getText() { return text; }
+    
+    static String categoryLine(MoneyFormat format, Category category, long amount) {
+        return "   • " + category.getName() + ": " + format.format(amount) + "\n";
+    }
+    
+    static String budgetLine(MoneyFormat format, Budget budget, long spent) {
+        long remaining = budget.getLimit() - spent;
+        return "   " + (remaining >= 0 ? "✅" : "❌") + " " + budget.getCategory().getName() + ": "
+                + format.format(budget.getLimit()) + ", Оставшийся бюджет: " + format.format(remaining) + "\n";
+    }
+    
+    // Разметка отчета; строки категорий и бюджетов приходят уже отформатированными
+    static String render(MoneyFormat format, String title, long totalIncome, Collection<String> incomeLines,
+                         long totalExpenses, Collection<String> expenseLines, Collection<String> budgetLines,
+                         String balanceLabel, long balance) {
+        StringBuilder out = new StringBuilder(512 + 48 * (incomeLines.size() + expenseLines.size() + budgetLines.size()));
+        out.append('\n').append(RULE).append('\n').append(title).append('\n').append(RULE).append('\n');
+        
+        out.append("💰 Общий доход: ").append(format.format(totalIncome)).append('\n');
+        if (!incomeLines.isEmpty()) {
+            out.append("\n📈 Доходы по категориям:\n");
+            incomeLines.forEach(out::append);
+        } else {
+            out.append("\n📈 Доходы по категориям: нет данных\n");
+        }
+        
+        out.append("\n💸 Общие расходы: ").append(format.format(totalExpenses)).append('\n');
+        if (!expenseLines.isEmpty()) {
+            out.append("\n📉 Расходы по категориям:\n");
+            expenseLines.forEach(out::append);
+        } else {
+            out.append("\n📉 Расходы по категориям: нет данных\n");
+        }
+        
+        out.append("\n🎯 Бюджет по категориям:\n");
+        if (budgetLines.isEmpty()) {
+            out.append("   Бюджеты не установлены\n");
+        } else {
+            budgetLines.forEach(out::append);
+        }
+        
+        out.append('\n').append(balanceLabel).append(format.format(balance)).append('\n');
+        out.append(RULE).append('\n');
+        return out.toString();
+    }
+}
\ No newline at end of file
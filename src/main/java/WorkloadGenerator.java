@@ -0,0 +1,125 @@
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Генератор синтетической нагрузки: доли типов операций, распределение сумм и популярность категорий задаются параметрами.
+// При одинаковом seed последовательность шагов одна и та же
+public class WorkloadGenerator {
+    public enum StepType { INCOME, EXPENSE, BUDGET, TRANSFER, REPORT }
+    
+    // Один шаг нагрузки; объект переиспользуется, чтобы генерация не создавала мусор
+    public static class Step {
+        public StepType type;
+        public int user;
+        public int recipient;
+        public String category;
+        public long amount;
+    }
+    
+    private final int users;
+    private final String[] incomeCategories;
+    private final String[] expenseCategories;
+    private final double[] categoryWeights;
+    private final double incomeShare;
+    private final double budgetShare;
+    private final double transferShare;
+    private final double reportShare;
+    private final double medianAmount;
+    private final double amountSigma;
+    
+    public WorkloadGenerator(Map<String, String> options) {
+        users = intOption(options, "users", 100);
+        int categories = intOption(options, "categories", 20);
+        incomeShare = doubleOption(options, "incomeShare", 0.2);
+        budgetShare = doubleOption(options, "budgetShare", 0.01);
+        transferShare = doubleOption(options, "transferShare", 0.05);
+        reportShare = doubleOption(options, "reportShare", 0.05);
+        // Суммы распределены логнормально: медиана в рублях и разброс
+        medianAmount = doubleOption(options, "medianAmount", 500);
+        amountSigma = doubleOption(options, "amountSigma", 1.0);
+        // Популярность категорий - закон Ципфа: первые категории встречаются намного чаще
+        double skew = doubleOption(options, "categorySkew", 1.1);
+        
+        incomeCategories = new String[categories];
+        expenseCategories = new String[categories];
+        for (int i = 0; i < categories; i++) {
+            incomeCategories[i] = "Доход " + (i + 1);
+            expenseCategories[i] = "Расход " + (i + 1);
+        }
+        categoryWeights = new double[categories];
+        double sum = 0;
+        for (int i = 0; i < categories; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            categoryWeights[i] = sum;
+        }
+        for (int i = 0; i < categories; i++) {
+            categoryWeights[i] /= sum;
+        }
+    }
+    
+    // Параметры командной строки вида имя=значение
+    static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Ожидался параметр вида имя=значение: " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+    
+    static int intOption(Map<String, String> options, String name, int defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+    
+    static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        String value = options.get(name);
+        return value == null ? defaultValue : Double.parseDouble(value);
+    }
+    
+    public int getUsers() { return users; }
+    
+    public void next(Random random, Step step) {
+        step.user = random.nextInt(users);
+        double roll = random.nextDouble();
+        if (roll < reportShare) {
+            step.type = StepType.REPORT;
+        } else if ((roll -= reportShare) < transferShare && users > 1) {
+            step.type = StepType.TRANSFER;
+            step.recipient = (step.user + 1 + random.nextInt(users - 1)) % users;
+            step.amount = amount(random);
+        } else if ((roll -= transferShare) < budgetShare) {
+            step.type = StepType.BUDGET;
+            step.category = expenseCategories[category(random)];
+            // Лимит порядка месячных трат по категории
+            step.amount = amount(random) * 20;
+        } else if (roll - budgetShare < incomeShare) {
+            step.type = StepType.INCOME;
+            step.category = incomeCategories[category(random)];
+            step.amount = amount(random) * 10;
+        } else {
+            step.type = StepType.EXPENSE;
+            step.category = expenseCategories[category(random)];
+            step.amount = amount(random);
+        }
+    }
+    
+    private int category(Random random) {
+        double roll = random.nextDouble();
+        for (int i = 0; i < categoryWeights.length - 1; i++) {
+            if (roll < categoryWeights[i]) {
+                return i;
+            }
+        }
+        return categoryWeights.length - 1;
+    }
+    
+    // Сумма в копейках, не меньше копейки
+    private long amount(Random random) {
+        double rubles = medianAmount * Math.exp(amountSigma * random.nextGaussian());
+        return Math.max(1, Math.round(rubles * 100));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,64 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Пакетный режим: записи вывода по командам и непредвиденный сбой команды посреди сценария
+class BatchRunnerTest {
+    @TempDir
+    File directory;
+    
+    private List<String> run(FinanceService service, String script, boolean expectedOk) throws IOException {
+        StringWriter out = new StringWriter();
+        assertEquals(expectedOk, new BatchRunner(service, out).run(new BufferedReader(new StringReader(script))));
+        service.close();
+        return List.of(out.toString().split("\n"));
+    }
+    
+    @Test
+    void commandsProduceRecords() throws Exception {
+        List<String> records = run(new FinanceService(new UserStorage(directory)),
+                "register alice secret\nlogin alice secret\n# комментарий\nincome \"Зарплата за март\" 1000\n"
+                        + "expense Еда 250.5\nbalance\nexpense Еда -1\n", false);
+        assertEquals("ok\t1\tregister\tlogin=alice", records.get(0));
+        assertEquals("ok\t2\tlogin\tlogin=alice", records.get(1));
+        assertEquals("ok\t4\tincome\tbalance=1000.00", records.get(2));
+        assertEquals("ok\t5\texpense\tbalance=749.50", records.get(3));
+        assertTrue(records.get(4).startsWith("ok\t6\tbalance\t"));
+        assertTrue(records.get(5).startsWith("error\t7\t"));
+        assertTrue(records.get(6).startsWith("summary\tok=5\terrors=1\t"));
+    }
+    
+    @Test
+    void unexpectedFailureIsReportedAndScriptContinues() throws Exception {
+        FinanceService failing = new FinanceService(new UserStorage(directory)) {
+            @Override
+            public List<BudgetAlert> setBudget(User user, String categoryName, long limit) {
+                throw new IllegalStateException("сбой");
+            }
+        };
+        List<String> records = run(failing,
+                "register alice secret\nlogin alice secret\nincome Зарплата 100\nbudget Еда 50\nbalance\n", false);
+        assertEquals("error\t4\tВнутренняя ошибка: java.lang.IllegalStateException: сбой", records.get(3));
+        assertTrue(records.get(4).startsWith("ok\t5\tbalance\t"));
+        assertTrue(records.get(5).startsWith("summary\tok=4\terrors=1\t"));
+        
+        // Журнал пользователя зафиксирован в конце сценария
+        UserStorage storage = new UserStorage(directory);
+        User alice = new User("alice");
+        assertTrue(storage.load(alice));
+        assertEquals(10_000, alice.getWallet().getBalance());
+        assertFalse(alice.getWallet().getOperations().isEmpty());
+        storage.close(alice);
+        storage.close();
+    }
+}
\ No newline at end of file
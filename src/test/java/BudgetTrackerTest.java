@@ -0,0 +1,80 @@
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Пороги бюджета: каждый порог оповещает один раз, граница не считается превышением, большие суммы не переполняются
+class BudgetTrackerTest {
+    @Test
+    void eachThresholdFiresOnce() {
+        BudgetTracker tracker = new BudgetTracker();
+        assertEquals(0, tracker.setLimit(3, 10_000, 0));
+        assertEquals(0, tracker.onSpent(3, 8_000));
+        assertEquals(80, tracker.onSpent(3, 8_001));
+        assertEquals(0, tracker.onSpent(3, 9_000));
+        assertEquals(0, tracker.onSpent(3, 10_000));
+        assertFalse(tracker.isExceeded(3, 10_000));
+        assertEquals(100, tracker.onSpent(3, 10_001));
+        assertEquals(0, tracker.onSpent(3, 50_000));
+        assertTrue(tracker.isExceeded(3, 10_001));
+    }
+    
+    @Test
+    void oneExpenseCanCrossBothThresholds() {
+        BudgetTracker tracker = new BudgetTracker();
+        tracker.setLimit(0, 10_000, 0);
+        assertEquals(100, tracker.onSpent(0, 20_000));
+    }
+    
+    @Test
+    void newLimitReportsThresholdAlreadyPassed() {
+        BudgetTracker tracker = new BudgetTracker();
+        assertEquals(80, tracker.setLimit(1, 10_000, 9_000));
+        assertEquals(0, tracker.onSpent(1, 9_500));
+        assertEquals(100, tracker.onSpent(1, 10_500));
+        // Лимит подняли: пороги отсчитываются заново
+        assertEquals(0, tracker.setLimit(1, 100_000, 10_500));
+        assertEquals(80, tracker.onSpent(1, 80_001));
+    }
+    
+    @Test
+    void largeTotalsDoNotOverflow() {
+        // spent * 100 и limit * 80 не помещаются в long
+        long limit = Long.MAX_VALUE / 50;
+        assertFalse(BudgetTracker.exceedsPercent(limit / 100 * 80, limit, 80));
+        assertTrue(BudgetTracker.exceedsPercent(limit / 100 * 81, limit, 80));
+        assertFalse(BudgetTracker.exceedsPercent(limit, limit, 100));
+        assertTrue(BudgetTracker.exceedsPercent(limit + 1, limit, 100));
+        assertTrue(BudgetTracker.exceedsPercent(Long.MAX_VALUE, limit, 100));
+        
+        BudgetTracker tracker = new BudgetTracker();
+        tracker.setLimit(0, limit, 0);
+        assertEquals(0, tracker.onSpent(0, limit / 2));
+        assertEquals(80, tracker.onSpent(0, limit / 10 * 9));
+        assertEquals(100, tracker.onSpent(0, Long.MAX_VALUE));
+    }
+    
+    @Test
+    void walletReportsThresholdAlerts() {
+        Wallet wallet = new Wallet();
+        Category food = wallet.getCategory("Еда", OperationType.EXPENSE);
+        wallet.setBudget(new Budget(food, 10_000));
+        wallet.addOperation(new Operation(food, 8_500, new Date()));
+        List<BudgetAlert> alerts = wallet.pollBudgetAlerts();
+        assertEquals(1, alerts.size());
+        assertEquals(80, alerts.get(0).getThresholdPercent());
+        assertEquals(8_500, alerts.get(0).getSpent());
+        
+        wallet.addOperation(new Operation(food, 1_000, new Date()));
+        assertTrue(wallet.pollBudgetAlerts().isEmpty());
+        wallet.addOperation(new Operation(food, 1_000, new Date()));
+        alerts = wallet.pollBudgetAlerts();
+        assertEquals(1, alerts.size());
+        assertTrue(alerts.get(0).isExceeded());
+        assertTrue(wallet.isBudgetExceeded(food));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,161 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Импорт из CSV и запись пачек операций в журнал
+class CsvImporterTest {
+    private static final long START = 1_700_000_000_000L;
+    
+    @TempDir
+    File directory;
+    
+    private Wallet reload() throws Exception {
+        UserStorage storage = new UserStorage(directory);
+        User user = new User("alice");
+        storage.load(user);
+        storage.close(user);
+        storage.close();
+        return user.getWallet();
+    }
+    
+    private static String repeat(char c, int count) {
+        StringBuilder text = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            text.append(c);
+        }
+        return text.toString();
+    }
+    
+    private CsvImporter importRows(String csv) throws Exception {
+        FinanceService service = new FinanceService(new UserStorage(directory));
+        User user = new User("alice");
+        CsvImporter importer = new CsvImporter(service, user);
+        importer.importFrom(new StringReader(csv));
+        service.flush(user);
+        service.close();
+        return importer;
+    }
+    
+    @Test
+    void failedBatchLeavesNothingInJournal() throws Exception {
+        UserStorage storage = new UserStorage(directory);
+        User user = new User("alice");
+        storage.load(user);
+        Wallet wallet = user.getWallet();
+        Category food = wallet.getCategory("Еда", OperationType.EXPENSE);
+        wallet.addOperation(new Operation(food, 100, new Date(START)));
+        
+        // Имя длиннее 64 КБ не записывается в журнал: пачка отклоняется целиком
+        OperationBatch batch = new OperationBatch();
+        batch.add(food, 200, START + 1);
+        batch.add(new Category(repeat('x', 70_000), OperationType.EXPENSE), 300, START + 2);
+        batch.add(food, 400, START + 3);
+        assertThrows(UncheckedIOException.class, () -> wallet.addOperations(batch));
+        assertEquals(1, wallet.getOperationCount());
+        
+        // Следующие операции получают номера, которые при восстановлении не совпадут с остатками пачки
+        wallet.addOperation(new Operation(food, 500, new Date(START + 4)));
+        storage.close(user);
+        storage.close();
+        
+        Wallet restored = reload();
+        assertEquals(2, restored.getOperationCount());
+        assertEquals(-600, restored.getBalance());
+    }
+    
+    @Test
+    void tooLongCategoryIsRejectedAsRow() throws Exception {
+        CsvImporter importer = importRows("2024-01-05,расход,Еда,100\n"
+                + "2024-01-06,расход," + repeat('x', InputRules.MAX_CATEGORY_LENGTH + 1) + ",200\n"
+                + "2024-01-07,расход,Еда,300\n");
+        assertEquals(2, importer.getImported());
+        assertEquals(1, importer.getRejected());
+        assertEquals(-40_000, reload().getBalance());
+    }
+    
+    @Test
+    void headerRowIsSkipped() throws Exception {
+        CsvImporter importer = importRows("date,type,category,amount\n2024-01-05,расход,Еда,100\n");
+        assertEquals(1, importer.getImported());
+        assertEquals(0, importer.getRejected());
+    }
+    
+    @Test
+    void malformedFirstRowIsReportedNotSkipped() throws Exception {
+        CsvImporter importer = importRows("2024-01-05,расход,Еда,10O\n2024-01-06,расход,Еда,100\n");
+        assertEquals(1, importer.getImported());
+        assertEquals(1, importer.getRejected());
+        assertEquals(1, importer.getErrors().size());
+        assertTrue(importer.getErrors().get(0).startsWith("строка 1: некорректная сумма"));
+    }
+    
+    @Test
+    void semicolonSeparatedRowsWithQuotesAndGroupedAmounts() throws Exception {
+        CsvImporter importer = importRows("дата;тип;категория;сумма\n"
+                + "2024-01-05;доход;\"Зарплата; аванс\";\"1 234,50\"\n"
+                + "2024-01-06 09:30;расход;\"Кафе \"\"Ромашка\"\"\";12,5\n");
+        assertEquals(2, importer.getImported());
+        assertEquals(0, importer.getRejected());
+        
+        Wallet wallet = reload();
+        assertEquals(123_450, wallet.getTotalIncome());
+        assertEquals(1_250, wallet.getTotalExpenses());
+        Operation cafe = wallet.getOperationsByCategory("Кафе \"Ромашка\"").get(0);
+        assertEquals(LocalDateTime.of(2024, 1, 6, 9, 30).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(),
+                cafe.getDate().getTime());
+        assertEquals(1, wallet.getOperationsByCategory("Зарплата; аванс").size());
+    }
+    
+    @Test
+    void typeFollowsSignWhenColumnIsEmpty() throws Exception {
+        CsvImporter importer = importRows("2024-01-05,,Еда,-100\n2024-01-05,,Подарок,250\n2024-01-05,,Еда,0\n");
+        assertEquals(2, importer.getImported());
+        assertEquals(1, importer.getRejected());
+        assertEquals("строка 3: сумма должна быть положительной", importer.getErrors().get(0));
+        
+        Wallet wallet = reload();
+        assertEquals(25_000, wallet.getTotalIncome());
+        assertEquals(10_000, wallet.getTotalExpenses());
+    }
+    
+    @Test
+    void rowsOfAnotherUserAndBadFieldsAreRejected() throws Exception {
+        CsvImporter importer = importRows("alice,2024-01-05,расход,Еда,100\n"
+                + "bob,2024-01-05,расход,Еда,100\n"
+                + "2024-13-05,расход,Еда,100\n"
+                + "2024-01-05,перевод,Еда,100\n"
+                + "2024-01-05,расход,\"Еда,100\n"
+                + "2024-01-05,расход,Еда\n");
+        assertEquals(1, importer.getImported());
+        assertEquals(5, importer.getRejected());
+        assertEquals("строка 2: операция другого пользователя 'bob'", importer.getErrors().get(0));
+        assertEquals("строка 3: некорректная дата '2024-13-05'", importer.getErrors().get(1));
+        assertEquals("строка 4: неизвестный тип операции 'перевод'", importer.getErrors().get(2));
+        assertEquals("строка 5: незакрытые кавычки", importer.getErrors().get(3));
+        assertEquals("строка 6: ожидалось 4 или 5 колонок, получено 3", importer.getErrors().get(4));
+    }
+    
+    @Test
+    void rowsBeyondBatchSizeAreAllJournaled() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < CsvImporter.BATCH_SIZE + 5; i++) {
+            csv.append("2024-01-05,расход,Еда,1\n");
+        }
+        CsvImporter importer = importRows(csv.toString());
+        assertEquals(CsvImporter.BATCH_SIZE + 5, importer.getImported());
+        
+        Wallet wallet = reload();
+        assertEquals(CsvImporter.BATCH_SIZE + 5, wallet.getOperationCount());
+        assertEquals(-100L * (CsvImporter.BATCH_SIZE + 5), wallet.getBalance());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Перенос старых снимков .dat. legacy/leg.dat записан исходной версией приложения (сериализация Java,
+// суммы в double): 500 операций по категориям c0..c4 по 12.5, доход - каждая третья, бюджет c1 - 100
+class DatMigratorTest {
+    @TempDir
+    File directory;
+    
+    private void copyFixture() throws Exception {
+        try (InputStream in = DatMigratorTest.class.getResourceAsStream("/legacy/leg.dat")) {
+            Files.copy(in, new File(directory, "leg.dat").toPath());
+        }
+    }
+    
+    private static void assertLegacyWallet(Wallet wallet) {
+        assertEquals(500, wallet.getOperationCount());
+        assertEquals(167 * 1250, wallet.getTotalIncome());
+        assertEquals(333 * 1250, wallet.getTotalExpenses());
+        assertEquals(1, wallet.getBudgets().size());
+        Category budgetCategory = wallet.getCategory("c1", OperationType.EXPENSE);
+        assertEquals(10_000, wallet.getBudgets().get(budgetCategory).getLimit());
+    }
+    
+    @Test
+    void legacySnapshotIsMigratedOnLoad() throws Exception {
+        copyFixture();
+        
+        UserStorage storage = new UserStorage(directory);
+        User user = new User("leg");
+        assertTrue(storage.load(user));
+        assertLegacyWallet(user.getWallet());
+        storage.close(user);
+        storage.close();
+        
+        assertTrue(new File(directory, "leg" + WalletFile.EXTENSION).exists());
+        assertTrue(new File(directory, "leg.dat.bak").exists());
+        assertFalse(new File(directory, "leg.dat").exists());
+    }
+    
+    @Test
+    void migratedSnapshotLoadsWithoutLegacyFile() throws Exception {
+        copyFixture();
+        assertEquals(new File(directory, "leg" + WalletFile.EXTENSION),
+                DatMigrator.migrate(new File(directory, "leg.dat")));
+        
+        assertLegacyWallet(WalletFile.read(new File(directory, "leg" + WalletFile.EXTENSION)));
+    }
+    
+    @Test
+    void existingWalletFileIsNotOverwritten() throws Exception {
+        copyFixture();
+        File walletFile = new File(directory, "leg" + WalletFile.EXTENSION);
+        WalletFile.write(new Wallet(), walletFile);
+        
+        assertEquals(null, DatMigrator.migrate(new File(directory, "leg.dat")));
+        assertEquals(0, WalletFile.read(walletFile).getOperationCount());
+        assertTrue(new File(directory, "leg.dat").exists());
+    }
+}
\ No newline at end of file
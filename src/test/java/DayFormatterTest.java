@@ -0,0 +1,48 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Текст даты и времени: кэш дня, смена дня и день перехода на летнее время
+class DayFormatterTest {
+    private static String dateTime(DayFormatter formatter, long timestamp) {
+        StringBuilder out = new StringBuilder();
+        formatter.appendDateTime(out, timestamp);
+        return out.toString();
+    }
+    
+    private static long at(ZoneId zone, int day, int hour, int minute) {
+        return LocalDateTime.of(2024, 3, day, hour, minute, 5).atZone(zone).toInstant().toEpochMilli();
+    }
+    
+    @Test
+    void formatsDatesInItsZone() {
+        ZoneId zone = ZoneOffset.ofHours(3);
+        DayFormatter formatter = new DayFormatter(zone);
+        assertEquals("2024-03-05 00:00:05", dateTime(formatter, at(zone, 5, 0, 0)));
+        assertEquals("2024-03-05 23:59:05", dateTime(formatter, at(zone, 5, 23, 59)));
+        assertEquals("2024-03-06 09:30:05", dateTime(formatter, at(zone, 6, 9, 30)));
+        // Назад по времени: кэш дня не мешает
+        assertEquals("2024-03-05 12:00:05", dateTime(formatter, at(zone, 5, 12, 0)));
+        
+        StringBuilder date = new StringBuilder();
+        formatter.appendDate(date, at(zone, 5, 23, 59));
+        assertEquals("2024-03-05", date.toString());
+        // Тот же момент в другом поясе - уже другой день
+        DayFormatter utc = new DayFormatter(ZoneOffset.UTC);
+        assertEquals("2024-03-04 21:30:05", dateTime(utc, at(zone, 5, 0, 30)));
+    }
+    
+    @Test
+    void daylightSavingDayUsesCalendarTime() {
+        ZoneId zone = ZoneId.of("Europe/Berlin");
+        DayFormatter formatter = new DayFormatter(zone);
+        // 31 марта 2024 в Берлине часы переводятся с 02:00 на 03:00
+        assertEquals("2024-03-31 01:15:05", dateTime(formatter, at(zone, 31, 1, 15)));
+        assertEquals("2024-03-31 03:15:05", dateTime(formatter, at(zone, 31, 3, 15)));
+        assertEquals("2024-03-31 23:15:05", dateTime(formatter, at(zone, 31, 23, 15)));
+    }
+}
\ No newline at end of file
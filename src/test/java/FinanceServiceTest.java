@@ -0,0 +1,95 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Переводы между пользователями: проверка средств, встречные переводы без взаимоблокировки и сохранение суммы денег
+class FinanceServiceTest {
+    private static final int USERS = 8;
+    
+    @TempDir
+    File directory;
+    
+    private FinanceService serviceWithUsers(long initialBalance) throws Exception {
+        FinanceService service = new FinanceService(new UserStorage(directory));
+        for (int i = 0; i < USERS; i++) {
+            service.register("user" + i, "secret");
+            service.addOperation(service.getUser("user" + i), "Зарплата", OperationType.INCOME, initialBalance);
+        }
+        return service;
+    }
+    
+    private static long balance(FinanceService service, String login) {
+        return service.read(service.getUser(login), Wallet::getBalance);
+    }
+    
+    @Test
+    void transferMovesMoneyBetweenWallets() throws Exception {
+        FinanceService service = serviceWithUsers(1000);
+        service.transfer(service.getUser("user0"), "user1", 400);
+        assertEquals(600, balance(service, "user0"));
+        assertEquals(1400, balance(service, "user1"));
+        service.close();
+    }
+    
+    @Test
+    void transferIsRejectedWithoutFundsOrRecipient() throws Exception {
+        FinanceService service = serviceWithUsers(1000);
+        User sender = service.getUser("user0");
+        assertThrows(FinanceException.class, () -> service.transfer(sender, "user1", 1001));
+        assertThrows(FinanceException.class, () -> service.transfer(sender, "nobody", 1));
+        assertThrows(FinanceException.class, () -> service.transfer(sender, "user0", 1));
+        assertEquals(1000, balance(service, "user0"));
+        assertEquals(1000, balance(service, "user1"));
+        service.close();
+    }
+    
+    @Test
+    void concurrentOpposingTransfersKeepTotalAndDoNotDeadlock() throws Exception {
+        FinanceService service = serviceWithUsers(1_000_000);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long seed = t;
+            tasks.add(pool.submit(() -> {
+                Random random = new Random(seed);
+                for (int i = 0; i < 2000; i++) {
+                    // Пары выбираются в обе стороны, поэтому потоки постоянно берут одни и те же полосы встречно
+                    int from = random.nextInt(USERS);
+                    int to = (from + 1 + random.nextInt(USERS - 1)) % USERS;
+                    try {
+                        service.transfer(service.getUser("user" + from), "user" + to, 1 + random.nextInt(100));
+                    } catch (FinanceException e) {
+                        // Нехватка средств допустима
+                    }
+                }
+                return null;
+            }));
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS), "переводы не завершились - взаимоблокировка?");
+        for (Future<?> task : tasks) {
+            task.get();
+        }
+        
+        long total = 0;
+        for (int i = 0; i < USERS; i++) {
+            long balance = balance(service, "user" + i);
+            assertTrue(balance >= 0);
+            total += balance;
+        }
+        assertEquals(USERS * 1_000_000L, total);
+        service.close();
+    }
+}
\ No newline at end of file
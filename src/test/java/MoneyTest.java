@@ -0,0 +1,46 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+// Разбор сумм: округление до копеек и границы, за которыми ввод отклоняется без масштабирования
+class MoneyTest {
+    @Test
+    void parsesToMinorUnits() {
+        assertEquals(1234, Money.parse("12.34"));
+        assertEquals(-150, Money.parse("-1.5"));
+        assertEquals(100_000, Money.parse("1e3"));
+        assertEquals(1, Money.parse("0.005"));
+        assertEquals(0, Money.parse("0.004"));
+    }
+    
+    @Test
+    void acceptsLongRange() {
+        assertEquals(Long.MAX_VALUE, Money.parse("92233720368547758.07"));
+        assertThrows(ArithmeticException.class, () -> Money.parse("92233720368547758.08"));
+    }
+    
+    @Test
+    void smallestAcceptedExponentRoundsToZero() {
+        assertEquals(0, Money.parse("1e-" + (Money.SCALE + 19)));
+        assertThrows(ArithmeticException.class, () -> Money.parse("1e-" + (Money.SCALE + 20)));
+    }
+    
+    @Test
+    void hugeExponentsAreRejectedQuickly() {
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertThrows(ArithmeticException.class, () -> Money.parse("1e999999999"));
+            assertThrows(ArithmeticException.class, () -> Money.parse("1e-99999999"));
+            assertThrows(ArithmeticException.class, () -> Money.parse("1e20"));
+        });
+    }
+    
+    @Test
+    void rejectsNonNumbers() {
+        assertThrows(NumberFormatException.class, () -> Money.parse("12,34"));
+        assertThrows(NumberFormatException.class, () -> Money.parse("abc"));
+    }
+}
\ No newline at end of file
@@ -0,0 +1,156 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Восстановление кошелька из журнала и снимка, в том числе после сбоя посреди записи
+class OperationJournalTest {
+    private static final long START = 1_700_000_000_000L;
+    
+    @TempDir
+    File directory;
+    
+    // Записывает в журнал alice count расходов по 1.00 и закрывает его
+    private File writeJournal(int count) throws Exception {
+        UserStorage storage = new UserStorage(directory);
+        User user = new User("alice");
+        storage.load(user);
+        Category food = user.getWallet().getCategory("Еда", OperationType.EXPENSE);
+        for (int i = 0; i < count; i++) {
+            user.getWallet().addOperation(new Operation(food, 100, new Date(START + i * 1000L)));
+        }
+        storage.close(user);
+        storage.close();
+        return new File(directory, "alice.journal");
+    }
+    
+    private Wallet reload() throws Exception {
+        UserStorage storage = new UserStorage(directory);
+        User user = new User("alice");
+        storage.load(user);
+        storage.close(user);
+        storage.close();
+        return user.getWallet();
+    }
+    
+    private static void append(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(bytes);
+        }
+    }
+    
+    @Test
+    void replayRestoresOperations() throws Exception {
+        writeJournal(10);
+        
+        Wallet wallet = reload();
+        assertEquals(10, wallet.getOperationCount());
+        assertEquals(-1000, wallet.getBalance());
+        assertEquals(10, wallet.getJournalSequence());
+    }
+    
+    @Test
+    void zeroFilledTailIsCutOff() throws Exception {
+        File journal = writeJournal(10);
+        long validLength = journal.length();
+        // Так выглядит файл, место под который выделено, а данные до сбоя не дошли
+        append(journal, new byte[4096]);
+        
+        assertEquals(10, reload().getOperationCount());
+        assertEquals(validLength, journal.length());
+    }
+    
+    @Test
+    void impossibleRecordLengthIsTreatedAsTornTail() throws Exception {
+        File journal = writeJournal(10);
+        long validLength = journal.length();
+        append(journal, new byte[] {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 1, 2, 3, 4, 5, 6, 7, 8});
+        
+        assertEquals(10, reload().getOperationCount());
+        assertEquals(validLength, journal.length());
+    }
+    
+    @Test
+    void partiallyWrittenRecordIsDropped() throws Exception {
+        File journal = writeJournal(10);
+        long recordLength = journal.length() / 10;
+        try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+            raf.setLength(journal.length() - 3);
+        }
+        
+        Wallet wallet = reload();
+        assertEquals(9, wallet.getOperationCount());
+        assertEquals(-900, wallet.getBalance());
+        assertEquals(9 * recordLength, journal.length());
+    }
+    
+    @Test
+    void replayStopsAtChecksumMismatch() throws Exception {
+        File journal = writeJournal(10);
+        // Записи одинаковой длины: портится содержимое шестой
+        long recordLength = journal.length() / 10;
+        try (RandomAccessFile raf = new RandomAccessFile(journal, "rw")) {
+            raf.seek(5 * recordLength + 10);
+            int value = raf.read();
+            raf.seek(5 * recordLength + 10);
+            raf.write(value ^ 0xff);
+        }
+        
+        assertEquals(5, reload().getOperationCount());
+        assertEquals(5 * recordLength, journal.length());
+    }
+    
+    @Test
+    void journalAcceptsNewRecordsAfterTornTail() throws Exception {
+        File journal = writeJournal(10);
+        append(journal, new byte[100]);
+        
+        UserStorage storage = new UserStorage(directory);
+        User user = new User("alice");
+        storage.load(user);
+        Category food = user.getWallet().getCategory("Еда", OperationType.EXPENSE);
+        user.getWallet().addOperation(new Operation(food, 500, new Date(START)));
+        storage.close(user);
+        storage.close();
+        
+        Wallet wallet = reload();
+        assertEquals(11, wallet.getOperationCount());
+        assertEquals(-1500, wallet.getBalance());
+    }
+    
+    @Test
+    void journalAlreadyInSnapshotIsNotAppliedTwice() throws Exception {
+        File journal = writeJournal(10);
+        // Сбой между записью снимка и сжатием журнала: в снимке уже есть все записи журнала
+        WalletFile.write(reload(), new File(directory, "alice" + WalletFile.EXTENSION));
+        assertTrue(journal.length() > 0);
+        
+        Wallet wallet = reload();
+        assertEquals(10, wallet.getOperationCount());
+        assertEquals(-1000, wallet.getBalance());
+    }
+    
+    @Test
+    void snapshotPlusJournalTail() throws Exception {
+        writeJournal(10);
+        UserStorage storage = new UserStorage(directory);
+        User user = new User("alice");
+        storage.load(user);
+        storage.save(user);
+        Category salary = user.getWallet().getCategory("Зарплата", OperationType.INCOME);
+        user.getWallet().addOperation(new Operation(salary, 5000, new Date(START)));
+        storage.close(user);
+        storage.close();
+        
+        Wallet wallet = reload();
+        assertEquals(11, wallet.getOperationCount());
+        assertEquals(4000, wallet.getBalance());
+    }
+}
\ No newline at end of file
@@ -0,0 +1,102 @@
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Индекс по времени: операции не по порядку, чередование запоздалых пачек с запросами и учет памяти
+class TimeIndexTest {
+    private static final long START = 1_700_000_000_000L;
+    private static final long HOUR = 3_600_000L;
+    
+    private final OperationStore store = new OperationStore();
+    private final TimeIndex index = new TimeIndex(store, ZoneOffset.UTC);
+    
+    private void add(long amount, long timestamp, int categoryId, OperationType type) {
+        store.add(amount, timestamp, categoryId, type);
+        index.add(store.size() - 1);
+    }
+    
+    // Ожидаемый баланс - прямым перебором всех операций
+    private long expectedBalanceAt(long timestamp) {
+        long balance = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.getTimestamp(i) <= timestamp) {
+                balance += store.isIncome(i) ? store.getAmount(i) : -store.getAmount(i);
+            }
+        }
+        return balance;
+    }
+    
+    private List<Integer> positionsInRange(long from, long to) {
+        List<Integer> positions = new ArrayList<>();
+        index.forEachInRange(from, to, positions::add);
+        return positions;
+    }
+    
+    @Test
+    void lateInsertsAreMergedInTimeOrder() {
+        add(100, START + 2 * HOUR, 0, OperationType.INCOME);
+        add(50, START + 4 * HOUR, 0, OperationType.EXPENSE);
+        add(30, START + HOUR, 0, OperationType.EXPENSE);
+        add(20, START + 4 * HOUR, 0, OperationType.INCOME);
+        add(10, START + 3 * HOUR, 0, OperationType.INCOME);
+        
+        // При равном времени раньше идет операция, добавленная раньше
+        assertEquals(List.of(2, 0, 4, 1, 3), positionsInRange(START, START + 5 * HOUR));
+        assertEquals(-30, index.balanceAt(START + HOUR));
+        assertEquals(80, index.balanceAt(START + 3 * HOUR));
+        assertEquals(50, index.balanceAt(START + 4 * HOUR));
+        assertEquals(4, index.countInRange(START + 2 * HOUR, START + 4 * HOUR + 1));
+    }
+    
+    @Test
+    void backdatedBatchesInterleavedWithQueries() {
+        Random random = new Random(42);
+        long now = START;
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < 100; i++) {
+                now += random.nextInt(1000);
+                add(1 + random.nextInt(1000), now, random.nextInt(5),
+                        random.nextBoolean() ? OperationType.INCOME : OperationType.EXPENSE);
+            }
+            // Запоздалая пачка: операции за последние сутки в случайном порядке
+            for (int i = 0; i < 10; i++) {
+                add(1 + random.nextInt(1000), now - random.nextInt((int) (24 * HOUR)), random.nextInt(5),
+                        OperationType.EXPENSE);
+            }
+            long probe = now - random.nextInt((int) (48 * HOUR));
+            assertEquals(expectedBalanceAt(probe), index.balanceAt(probe));
+        }
+        
+        List<Integer> ordered = positionsInRange(Long.MIN_VALUE, Long.MAX_VALUE);
+        assertEquals(store.size(), ordered.size());
+        for (int k = 1; k < ordered.size(); k++) {
+            assertTrue(store.getTimestamp(ordered.get(k - 1)) <= store.getTimestamp(ordered.get(k)));
+        }
+        assertEquals(expectedBalanceAt(Long.MAX_VALUE), index.balanceAt(Long.MAX_VALUE));
+    }
+    
+    @Test
+    void sumsInRangeIncludeLateInserts() {
+        add(100, START + 30 * HOUR, 1, OperationType.EXPENSE);
+        add(200, START, 2, OperationType.EXPENSE);
+        add(300, START + 60 * HOUR, 1, OperationType.EXPENSE);
+        assertArrayEquals(new long[] {0, 400, 200}, index.sumsInRange(START, START + 72 * HOUR));
+        assertArrayEquals(new long[] {0, 100, 200}, index.sumsInRange(START, START + 31 * HOUR));
+    }
+    
+    @Test
+    void memoryEstimateGrowsWithCategoryBuckets() {
+        add(100, START, 0, OperationType.EXPENSE);
+        long small = index.estimateMemory();
+        // Большой номер категории раздувает массивы сумм за день и за месяц
+        add(100, START, 9_999, OperationType.EXPENSE);
+        assertTrue(index.estimateMemory() - small >= 2 * 8 * 9_999);
+    }
+}
\ No newline at end of file
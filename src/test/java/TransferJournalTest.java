@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Журнал переводов: применение к обоим участникам, обрыв хвоста, сжатие и повторное применение поверх снимка
+class TransferJournalTest {
+    private static final long START = 1_700_000_000_000L;
+    
+    @TempDir
+    File directory;
+    
+    private File journalFile() {
+        return new File(directory, "transfers.journal");
+    }
+    
+    private static void append(File file, byte[] bytes) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(bytes);
+        }
+    }
+    
+    private static long balanceAfterReplay(TransferJournal journal, String login) throws IOException {
+        Wallet wallet = new Wallet();
+        journal.replay(login, wallet);
+        return wallet.getBalance();
+    }
+    
+    @Test
+    void replayAppliesTransfersToBothParticipants() throws Exception {
+        TransferJournal journal = new TransferJournal(journalFile());
+        journal.append("alice", "bob", 500, START);
+        journal.append("bob", "alice", 200, START + 1);
+        journal.close();
+        
+        TransferJournal reopened = new TransferJournal(journalFile());
+        assertEquals(2, reopened.getRecordCount());
+        assertEquals(-300, balanceAfterReplay(reopened, "alice"));
+        assertEquals(300, balanceAfterReplay(reopened, "bob"));
+        assertEquals(0, balanceAfterReplay(reopened, "carol"));
+        reopened.close();
+    }
+    
+    @Test
+    void replayIsIdempotent() throws Exception {
+        TransferJournal journal = new TransferJournal(journalFile());
+        journal.append("alice", "bob", 500, START);
+        
+        Wallet wallet = new Wallet();
+        journal.replay("bob", wallet);
+        journal.replay("bob", wallet);
+        assertEquals(500, wallet.getBalance());
+        assertEquals(1, wallet.getOperationCount());
+        journal.close();
+    }
+    
+    @Test
+    void tornTailIsCutOffAndIdsContinue() throws Exception {
+        TransferJournal journal = new TransferJournal(journalFile());
+        journal.append("alice", "bob", 500, START);
+        journal.append("alice", "bob", 100, START + 1);
+        journal.close();
+        long validLength = journalFile().length();
+        append(journalFile(), new byte[4096]);
+        
+        TransferJournal reopened = new TransferJournal(journalFile());
+        assertEquals(2, reopened.getRecordCount());
+        assertEquals(validLength, journalFile().length());
+        assertEquals(3, reopened.append("bob", "alice", 50, START + 2).getId());
+        reopened.close();
+    }
+    
+    @Test
+    void impossibleRecordLengthIsTreatedAsTornTail() throws Exception {
+        TransferJournal journal = new TransferJournal(journalFile());
+        journal.append("alice", "bob", 500, START);
+        journal.close();
+        long validLength = journalFile().length();
+        append(journalFile(), new byte[] {0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff, 1, 2, 3, 4});
+        
+        TransferJournal reopened = new TransferJournal(journalFile());
+        assertEquals(1, reopened.getRecordCount());
+        assertEquals(validLength, journalFile().length());
+        reopened.close();
+    }
+    
+    @Test
+    void truncateKeepsTransferIds() throws Exception {
+        TransferJournal journal = new TransferJournal(journalFile());
+        journal.append("alice", "bob", 500, START);
+        journal.append("alice", "bob", 100, START + 1);
+        journal.truncate();
+        assertEquals(Collections.emptySet(), journal.getParticipants());
+        assertEquals(3, journal.append("alice", "bob", 10, START + 2).getId());
+        journal.close();
+        
+        // Номер после сжатия восстанавливается из записи-отметки и в новом процессе
+        TransferJournal reopened = new TransferJournal(journalFile());
+        assertEquals(1, reopened.getRecordCount());
+        assertEquals(4, reopened.append("alice", "bob", 10, START + 3).getId());
+        reopened.close();
+    }
+    
+    @Test
+    void transferInSnapshotIsNotAppliedTwice() throws Exception {
+        UserStorage storage = new UserStorage(directory);
+        User alice = new User("alice");
+        storage.load(alice);
+        Category salary = alice.getWallet().getCategory("Зарплата", OperationType.INCOME);
+        alice.getWallet().addOperation(new Operation(salary, 1000, new Date(START)));
+        Transfer transfer = storage.getTransfers().append("alice", "bob", 400, START + 1);
+        transfer.applyTo("alice", alice.getWallet(), true);
+        // Снимок уже содержит перевод, а журнал переводов еще не сжат
+        storage.save(alice);
+        storage.close(alice);
+        storage.close();
+        
+        UserStorage restarted = new UserStorage(directory);
+        User reloaded = new User("alice");
+        restarted.load(reloaded);
+        assertEquals(600, reloaded.getWallet().getBalance());
+        assertEquals(2, reloaded.getWallet().getOperationCount());
+        
+        // Выгруженный получатель получает перевод при загрузке
+        User bob = new User("bob");
+        restarted.load(bob);
+        assertEquals(400, bob.getWallet().getBalance());
+        restarted.close(reloaded);
+        restarted.close(bob);
+        restarted.close();
+    }
+}
\ No newline at end of file
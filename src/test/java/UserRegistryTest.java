@@ -0,0 +1,138 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Реестр пользователей: поиск через индекс, рост индекса, восстановление по журналу и проверка паролей
+class UserRegistryTest {
+    // Хеширование в тестах дешевое: проверяется логика, а не стойкость
+    private static final int ITERATIONS = 1;
+    
+    @TempDir
+    File directory;
+    
+    private UserRegistry open() throws Exception {
+        return new UserRegistry(directory, ITERATIONS);
+    }
+    
+    @Test
+    void passwordHashVerifiesOnlyTheOriginalPassword() {
+        PasswordHash hash = PasswordHash.create("secret", ITERATIONS);
+        assertTrue(hash.matches("secret"));
+        assertFalse(hash.matches("Secret"));
+        assertFalse(hash.matches(""));
+        
+        // Та же соль и число итераций дают тот же хеш; другая соль - другой
+        PasswordHash copy = new PasswordHash(hash.getSalt(), hash.getHash(), hash.getIterations());
+        assertTrue(copy.matches("secret"));
+        assertNotEquals(new String(hash.getHash()), new String(PasswordHash.create("secret", ITERATIONS).getHash()));
+    }
+    
+    @Test
+    void registeredUserIsFoundAfterReopen() throws Exception {
+        UserRegistry registry = open();
+        assertNotNull(registry.register("alice", "secret"));
+        assertNull(registry.register("alice", "other"));
+        assertNull(registry.find("bob"));
+        registry.close();
+        
+        UserRegistry reopened = open();
+        assertEquals(1, reopened.size());
+        UserRegistry.Entry entry = reopened.find("alice");
+        assertEquals("alice", entry.getWalletName());
+        assertTrue(entry.getCredentials().matches("secret"));
+        assertFalse(entry.getCredentials().matches("other"));
+        reopened.close();
+    }
+    
+    @Test
+    void loginsUnfitForFileNamesGetNumberedWallets() throws Exception {
+        UserRegistry registry = open();
+        assertEquals("_1", registry.register("../etc", "secret").getWalletName());
+        assertEquals("_2", registry.register("transfers", "secret").getWalletName());
+        assertEquals("ivan", registry.register("ivan", "secret").getWalletName());
+        registry.close();
+    }
+    
+    @Test
+    void indexGrowsAndSurvivesReopen() throws Exception {
+        UserRegistry registry = open();
+        // Больше половины начальной емкости индекса: индекс удваивается, возможно, не один раз
+        for (int i = 0; i < 2000; i++) {
+            registry.register("user" + i, "p" + i);
+        }
+        registry.close();
+        
+        UserRegistry reopened = open();
+        assertEquals(2000, reopened.size());
+        for (int i = 0; i < 2000; i += 97) {
+            assertTrue(reopened.find("user" + i).getCredentials().matches("p" + i));
+        }
+        assertNull(reopened.find("user2000"));
+        reopened.close();
+    }
+    
+    @Test
+    void lostIndexIsRebuiltFromLog() throws Exception {
+        UserRegistry registry = open();
+        for (int i = 0; i < 10; i++) {
+            registry.register("user" + i, "secret");
+        }
+        registry.close();
+        Files.delete(new File(directory, "users.index").toPath());
+        
+        UserRegistry reopened = open();
+        assertEquals(10, reopened.size());
+        assertNotNull(reopened.find("user7"));
+        reopened.close();
+    }
+    
+    @Test
+    void tornLogTailIsCutOff() throws Exception {
+        UserRegistry registry = open();
+        registry.register("alice", "secret");
+        registry.close();
+        File log = new File(directory, "users.registry");
+        long validLength = log.length();
+        // Индекс уже покрывает журнал целиком; хвост после него - недописанная регистрация
+        try (FileOutputStream out = new FileOutputStream(log, true)) {
+            out.write(new byte[] {0, 0, 0, 50, 1, 2, 3});
+        }
+        
+        UserRegistry reopened = open();
+        assertEquals(1, reopened.size());
+        assertEquals(validLength, log.length());
+        assertNotNull(reopened.register("bob", "secret"));
+        reopened.close();
+        
+        UserRegistry again = open();
+        assertEquals(2, again.size());
+        assertNotNull(again.find("bob"));
+        again.close();
+    }
+    
+    @Test
+    void legacyUsersAreImportedOnce() throws Exception {
+        try (InputStream in = UserRegistryTest.class.getResourceAsStream("/legacy/leg.dat")) {
+            Files.copy(in, new File(directory, "leg.dat").toPath());
+        }
+        UserRegistry registry = open();
+        assertEquals(1, registry.size());
+        assertEquals("leg", registry.find("leg").getWalletName());
+        registry.close();
+        
+        UserRegistry reopened = open();
+        assertEquals(1, reopened.size());
+        reopened.close();
+    }
+}
\ No newline at end of file
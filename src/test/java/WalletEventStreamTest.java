@@ -0,0 +1,129 @@
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Поток событий: переход через конец кольца, обратное давление, заполнение ячеек не по порядку
+// и событие получателя перевода, чей кошелек не загружен
+class WalletEventStreamTest {
+    private static final Category FOOD = new Category("Еда", OperationType.EXPENSE);
+    
+    @TempDir
+    File directory;
+    
+    // Копирует поля событий: ячейки буфера переиспользуются
+    private static final class Collector implements WalletEventStream.Subscriber {
+        final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        
+        @Override
+        public void onEvent(WalletEvent event) {
+            events.add(event.getType() + " " + event.getLogin() + " " + event.getAmount() + " "
+                    + (event.isBalanceKnown() ? String.valueOf(event.getBalance()) : "?"));
+        }
+    }
+    
+    private static List<String> operations(int from, int to) {
+        List<String> expected = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            expected.add("OPERATION_ADDED alice " + i + " 0");
+        }
+        return expected;
+    }
+    
+    private static void publish(WalletEventStream stream, int from, int to) {
+        for (int i = from; i < to; i++) {
+            stream.publishOperation(stream.reserve(1), "alice", FOOD, i, 0);
+        }
+    }
+    
+    @Test
+    void eventsWithoutSubscribersAreNotReserved() {
+        WalletEventStream stream = new WalletEventStream(4);
+        assertEquals(-1, stream.reserve(1));
+        assertEquals(-1, stream.publishOperation(-1, "alice", FOOD, 100, 0));
+    }
+    
+    @Test
+    void ringWrapKeepsOrder() {
+        WalletEventStream stream = new WalletEventStream(4);
+        Collector collector = new Collector();
+        stream.subscribe("test", collector);
+        publish(stream, 0, 1000);
+        stream.close();
+        
+        assertEquals(operations(0, 1000), collector.events);
+    }
+    
+    @Test
+    void slowSubscriberHoldsPublisherBackWithoutLosingEvents() throws Exception {
+        WalletEventStream stream = new WalletEventStream(4);
+        CountDownLatch release = new CountDownLatch(1);
+        Collector collector = new Collector();
+        stream.subscribe("slow", event -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            collector.onEvent(event);
+        });
+        
+        Thread publisher = new Thread(() -> publish(stream, 0, 10));
+        publisher.start();
+        // Подписчик держит первое событие: в буфер помещается четыре, дальше публикатор ждет
+        publisher.join(200);
+        assertTrue(publisher.isAlive());
+        assertTrue(stream.getLag() >= 3);
+        
+        release.countDown();
+        publisher.join(TimeUnit.SECONDS.toMillis(5));
+        assertFalse(publisher.isAlive());
+        stream.close();
+        assertEquals(operations(0, 10), collector.events);
+    }
+    
+    @Test
+    void reservedSlotsAreDeliveredInReservationOrder() throws Exception {
+        WalletEventStream stream = new WalletEventStream(16);
+        Collector collector = new Collector();
+        stream.subscribe("test", collector);
+        long first = stream.reserve(2);
+        long second = stream.reserve(1);
+        
+        // Более поздний номер заполнен раньше: подписчик ждет пустую ячейку перед ним
+        stream.publishOperation(second, "alice", FOOD, 2, 0);
+        Thread.sleep(50);
+        assertEquals(Collections.emptyList(), collector.events);
+        
+        stream.publishOperation(stream.publishOperation(first, "alice", FOOD, 0, 0), "alice", FOOD, 1, 0);
+        stream.close();
+        assertEquals(operations(0, 3), collector.events);
+    }
+    
+    @Test
+    void transferToUnloadedRecipientIsPublishedWithoutBalance() throws Exception {
+        FinanceService service = new FinanceService(new UserStorage(directory));
+        service.register("alice", "secret");
+        service.register("bob", "secret");
+        Collector collector = new Collector();
+        service.getEvents().subscribe("test", collector);
+        
+        User alice = service.getUser("alice");
+        service.addOperation(alice, "Зарплата", OperationType.INCOME, 1000);
+        service.transfer(alice, "bob", 300);
+        service.flush(alice);
+        service.close();
+        
+        assertEquals(List.of("OPERATION_ADDED alice 1000 1000", "TRANSFER_APPLIED alice 300 700",
+                "TRANSFER_RECEIVED bob 300 ?"), collector.events);
+    }
+}
\ No newline at end of file